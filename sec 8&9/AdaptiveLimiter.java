@@ -0,0 +1,206 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Stand-in for a fixed Semaphore that sizes its own permit count (TCP Vegas
+// style). acquire() hands out a Permit that remembers when it was granted,
+// so it can be released from any thread, and only once: releasing it again
+// throws instead of letting inFlight drift below the real count. Every
+// release reports how long the permit was held. Once per window the
+// average latency is compared with the lowest latency seen (the no-queueing
+// floor); the gap estimates how many requests are queued downstream:
+//
+//     queued = limit * (1 - minLatency / avgLatency)
+//
+// Few queued  -> the downstream has spare capacity, grow the limit by one.
+// Many queued -> we are past the knee and only adding latency, shrink it.
+public class AdaptiveLimiter {
+    private static final int MIN_WINDOW = 10;
+    private static final int ALPHA = 2;
+    private static final int BETA = 4;
+    // Forget the latency floor now and then so a slower baseline is picked up
+    private static final int WINDOWS_PER_FLOOR_RESET = 100;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitFreed = lock.newCondition();
+    private final AtomicLong rejections = new AtomicLong();
+
+    // Guarded by lock
+    private int limit;
+    private int inFlight;
+    private long minLatencyNanos = Long.MAX_VALUE;
+    private long windowLatencySum;
+    private int windowSamples;
+    private int windowPeakInFlight;
+    private int windowsSinceFloorReset;
+    private boolean windowDropped;
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("need 1 <= minLimit <= initialLimit <= maxLimit");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    // One admitted call; its hold time is the latency sample
+    public final class Permit {
+        private final long acquiredAt = System.nanoTime();
+        // Guarded by lock
+        private boolean released;
+
+        private Permit() {
+        }
+
+        public void release() {
+            AdaptiveLimiter.this.release(this, false);
+        }
+
+        // Release after the downstream call failed or timed out: always backs off
+        public void releaseDropped() {
+            AdaptiveLimiter.this.release(this, true);
+        }
+    }
+
+    public Permit acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= limit) {
+                permitFreed.await();
+            }
+            return admit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // null if no permit is free
+    public Permit tryAcquire() {
+        lock.lock();
+        try {
+            if (inFlight >= limit) {
+                rejections.incrementAndGet();
+                return null;
+            }
+            return admit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // null if no permit became free in time
+    public Permit tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= limit) {
+                if (remaining <= 0) {
+                    rejections.incrementAndGet();
+                    return null;
+                }
+                remaining = permitFreed.awaitNanos(remaining);
+            }
+            return admit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Permit admit() {
+        inFlight++;
+        windowPeakInFlight = Math.max(windowPeakInFlight, inFlight);
+        return new Permit();
+    }
+
+    private void release(Permit permit, boolean dropped) {
+        long latency = System.nanoTime() - permit.acquiredAt;
+        lock.lock();
+        try {
+            if (permit.released) {
+                throw new IllegalStateException("permit already released");
+            }
+            permit.released = true;
+            inFlight--;
+            windowLatencySum += latency;
+            windowSamples++;
+            windowDropped |= dropped;
+            if (windowSamples >= Math.max(MIN_WINDOW, limit)) {
+                adjustLimit();
+            }
+            permitFreed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adjustLimit() {
+        long avgLatency = windowLatencySum / windowSamples;
+        if (++windowsSinceFloorReset >= WINDOWS_PER_FLOOR_RESET) {
+            minLatencyNanos = Long.MAX_VALUE;
+            windowsSinceFloorReset = 0;
+        }
+        minLatencyNanos = Math.min(minLatencyNanos, Math.max(1, avgLatency));
+
+        int newLimit = limit;
+        double queued = limit * (1.0 - (double) minLatencyNanos / avgLatency);
+        if (windowDropped) {
+            newLimit = (int) (limit * 0.9);
+        } else if (queued > BETA) {
+            newLimit = limit - 1;
+        } else if (queued < ALPHA && windowPeakInFlight * 2 >= limit) {
+            // Only grow when callers actually used the permits we already had
+            newLimit = limit + 1;
+        }
+        int oldLimit = limit;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        if (limit > oldLimit) {
+            permitFreed.signalAll();
+        }
+
+        windowLatencySum = 0;
+        windowSamples = 0;
+        windowPeakInFlight = inFlight;
+        windowDropped = false;
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejections() {
+        return rejections.get();
+    }
+
+    public long getMinLatency(TimeUnit unit) {
+        lock.lock();
+        try {
+            return minLatencyNanos == Long.MAX_VALUE ? 0 : unit.convert(minLatencyNanos, TimeUnit.NANOSECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveLimiter[limit=" + getLimit() + ", inFlight=" + getInFlight()
+                + ", rejections=" + getRejections() + "]";
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+// Increment throughput of one shared counter as threads are added.
+// Run: java CounterBenchmark [millisPerRun]
+public class CounterBenchmark {
+
+    interface Counter {
+        void increment();
+
+        long value();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 500;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] threadCounts = IntStream.of(1, 2, 4, 8, cores).distinct().sorted().toArray();
+
+        System.out.println("===== Counter Benchmark (" + cores + " cores, " + millis + " ms per run) =====");
+        System.out.printf("%-8s %16s %16s %16s %16s%n",
+                "threads", "AtomicInteger", "AtomicLong", "LongAdder", "StripedAdder");
+        for (int threads : threadCounts) {
+            AtomicInteger atomicInteger = new AtomicInteger();
+            AtomicLong atomicLong = new AtomicLong();
+            LongAdder longAdder = new LongAdder();
+            StripedLongAdder striped = new StripedLongAdder();
+
+            System.out.printf("%-8d %,16.0f %,16.0f %,16.0f %,16.0f%n", threads,
+                    run(threads, millis, new Counter() {
+                        public void increment() { atomicInteger.incrementAndGet(); }
+                        public long value() { return atomicInteger.get(); }
+                    }),
+                    run(threads, millis, new Counter() {
+                        public void increment() { atomicLong.incrementAndGet(); }
+                        public long value() { return atomicLong.get(); }
+                    }),
+                    run(threads, millis, new Counter() {
+                        public void increment() { longAdder.increment(); }
+                        public long value() { return longAdder.sum(); }
+                    }),
+                    run(threads, millis, new Counter() {
+                        public void increment() { striped.increment(); }
+                        public long value() { return striped.sum(); }
+                    }));
+        }
+    }
+
+    // Returns increments per second across all threads
+    static double run(int threads, long millis, Counter counter) throws InterruptedException {
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (!Thread.currentThread().isInterrupted()) {
+                    for (int i = 0; i < 1000; i++) {
+                        counter.increment();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+
+        long before = counter.value();
+        long start = System.nanoTime();
+        go.countDown();
+        Thread.sleep(millis);
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        return (counter.value() - before) * 1e9 / elapsed;
+    }
+}
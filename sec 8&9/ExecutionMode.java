@@ -0,0 +1,14 @@
+import java.util.concurrent.*;
+
+// Which kind of thread runs the tasks, picked when the executor is built
+public enum ExecutionMode {
+    PLATFORM,
+    VIRTUAL;
+
+    public ThreadFactory threadFactory(String namePrefix) {
+        if (this == VIRTUAL) {
+            return Thread.ofVirtual().name(namePrefix, 1).factory();
+        }
+        return Thread.ofPlatform().name(namePrefix, 1).factory();
+    }
+}
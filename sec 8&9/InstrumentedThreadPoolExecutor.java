@@ -0,0 +1,363 @@
+import java.lang.management.ManagementFactory;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// ThreadPoolExecutor that records, per task, how long it sat in the queue and
+// how long it ran, plus rejections, worker creation/exit and queue depth
+// (sampled on every submit and every dequeue). Recording goes into striped
+// histograms, so instrumented submits do not contend with each other. Stats
+// are available from the getters and, after registerMBean(), over JMX.
+//
+// Every submit is queued in its own TimedTask carrying the enqueue time, so
+// the same Runnable submitted ten times gives ten queue-wait samples. The
+// wrapper never escapes: getQueue() is a view that unwraps, and remove(),
+// shutdownNow() and rejection handlers see the caller's own Runnables.
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor implements ThreadPoolStatsMXBean {
+
+    // Created before super() so the thread factory and handler wrappers can use it
+    private static class Counters {
+        final StripedLongAdder rejected = new StripedLongAdder();
+        final StripedLongAdder workersStarted = new StripedLongAdder();
+        final StripedLongAdder workersExited = new StripedLongAdder();
+
+        ThreadFactory wrap(ThreadFactory factory) {
+            return task -> {
+                Thread thread = factory.newThread(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        workersExited.increment();
+                    }
+                });
+                if (thread != null) {
+                    workersStarted.increment();
+                }
+                return thread;
+            };
+        }
+
+        RejectedExecutionHandler wrap(RejectedExecutionHandler handler) {
+            return (task, executor) -> {
+                rejected.increment();
+                handler.rejectedExecution(unwrap(task), executor);
+            };
+        }
+    }
+
+    // Carries the enqueue timestamp of one submit from execute() to beforeExecute()
+    private static final class TimedTask implements Runnable {
+        final Runnable task;
+        final long enqueuedAt = System.nanoTime();
+
+        TimedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+
+    private static Runnable unwrap(Runnable task) {
+        return task instanceof TimedTask timed ? timed.task : task;
+    }
+
+    // The work queue as callers see it: tasks come out unwrapped, tasks put
+    // in directly are wrapped (and timed from then on)
+    private static final class UnwrappingQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+        private final BlockingQueue<Runnable> queue;
+
+        UnwrappingQueue(BlockingQueue<Runnable> queue) {
+            this.queue = queue;
+        }
+
+        private static Runnable unwrapOrNull(Runnable task) {
+            return task == null ? null : unwrap(task);
+        }
+
+        @Override
+        public Iterator<Runnable> iterator() {
+            Iterator<Runnable> it = queue.iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public Runnable next() {
+                    return unwrap(it.next());
+                }
+
+                @Override
+                public void remove() {
+                    it.remove();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return queue.size();
+        }
+
+        @Override
+        public boolean offer(Runnable task) {
+            return queue.offer(new TimedTask(task));
+        }
+
+        @Override
+        public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+            return queue.offer(new TimedTask(task), timeout, unit);
+        }
+
+        @Override
+        public void put(Runnable task) throws InterruptedException {
+            queue.put(new TimedTask(task));
+        }
+
+        @Override
+        public Runnable poll() {
+            return unwrapOrNull(queue.poll());
+        }
+
+        @Override
+        public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+            return unwrapOrNull(queue.poll(timeout, unit));
+        }
+
+        @Override
+        public Runnable take() throws InterruptedException {
+            return unwrap(queue.take());
+        }
+
+        @Override
+        public Runnable peek() {
+            return unwrapOrNull(queue.peek());
+        }
+
+        @Override
+        public int remainingCapacity() {
+            return queue.remainingCapacity();
+        }
+
+        @Override
+        public int drainTo(Collection<? super Runnable> target) {
+            return drainTo(target, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public int drainTo(Collection<? super Runnable> target, int max) {
+            List<Runnable> drained = new ArrayList<>();
+            int count = queue.drainTo(drained, max);
+            for (Runnable task : drained) {
+                target.add(unwrap(task));
+            }
+            return count;
+        }
+    }
+
+    private final Counters counters;
+    private final BlockingQueue<Runnable> queueView;
+    // 1 us to ~1 min, within 12.5%
+    private final StripedHistogram queueWaitNanos = StripedHistogram.logLinear(1_000, 60_000_000_000L, 8);
+    private final StripedHistogram executionNanos = StripedHistogram.logLinear(1_000, 60_000_000_000L, 8);
+    private final StripedHistogram queueDepth = StripedHistogram.exponential(1, 24);
+    private final StripedLongAccumulator peakQueueDepth = StripedLongAccumulator.max();
+    private final ThreadLocal<long[]> startedAt = ThreadLocal.withInitial(() -> new long[1]);
+
+    public InstrumentedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime,
+                                          TimeUnit unit, BlockingQueue<Runnable> workQueue) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue,
+                Executors.defaultThreadFactory(), new AbortPolicy());
+    }
+
+    public InstrumentedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime,
+                                          TimeUnit unit, BlockingQueue<Runnable> workQueue,
+                                          ThreadFactory threadFactory) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, new AbortPolicy());
+    }
+
+    public InstrumentedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime,
+                                          TimeUnit unit, BlockingQueue<Runnable> workQueue,
+                                          ThreadFactory threadFactory, RejectedExecutionHandler handler) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler, new Counters());
+    }
+
+    private InstrumentedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime,
+                                           TimeUnit unit, BlockingQueue<Runnable> workQueue,
+                                           ThreadFactory threadFactory, RejectedExecutionHandler handler,
+                                           Counters counters) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue,
+                counters.wrap(threadFactory), counters.wrap(handler));
+        this.counters = counters;
+        this.queueView = new UnwrappingQueue(workQueue);
+    }
+
+    @Override
+    public void setThreadFactory(ThreadFactory threadFactory) {
+        super.setThreadFactory(counters.wrap(threadFactory));
+    }
+
+    @Override
+    public void setRejectedExecutionHandler(RejectedExecutionHandler handler) {
+        super.setRejectedExecutionHandler(counters.wrap(handler));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        recordQueueDepth();
+        super.execute(new TimedTask(command));
+    }
+
+    private void recordQueueDepth() {
+        int depth = super.getQueue().size();
+        queueDepth.record(depth);
+        peakQueueDepth.accumulate(depth);
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable task) {
+        long now = System.nanoTime();
+        if (task instanceof TimedTask timed) {
+            queueWaitNanos.record(now - timed.enqueuedAt);
+        }
+        // Catches the backlog as workers drain it, not only when tasks arrive
+        recordQueueDepth();
+        startedAt.get()[0] = now;
+        super.beforeExecute(thread, unwrap(task));
+    }
+
+    @Override
+    public BlockingQueue<Runnable> getQueue() {
+        return queueView;
+    }
+
+    // Removes one queued submit of the task
+    @Override
+    public boolean remove(Runnable task) {
+        for (Runnable queued : super.getQueue()) {
+            if (unwrap(queued) == task) {
+                return super.remove(queued);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = super.shutdownNow();
+        pending.replaceAll(InstrumentedThreadPoolExecutor::unwrap);
+        return pending;
+    }
+
+    @Override
+    protected void afterExecute(Runnable task, Throwable failure) {
+        super.afterExecute(unwrap(task), failure);
+        executionNanos.record(System.nanoTime() - startedAt.get()[0]);
+    }
+
+    public StripedHistogram.Snapshot getQueueWaitSnapshot() {
+        return queueWaitNanos.snapshot();
+    }
+
+    public StripedHistogram.Snapshot getExecutionTimeSnapshot() {
+        return executionNanos.snapshot();
+    }
+
+    public StripedHistogram.Snapshot getQueueDepthSnapshot() {
+        return queueDepth.snapshot();
+    }
+
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName("parallelcomputation:type=ThreadPool,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    public void unregisterMBean(ObjectName objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    }
+
+    public String getStatsReport() {
+        return "queue wait [us]: p50<=" + getQueueWaitP50Micros() + " p99<=" + getQueueWaitP99Micros()
+                + " | execution [us]: p50<=" + getExecutionTimeP50Micros() + " p99<=" + getExecutionTimeP99Micros()
+                + " | rejected=" + getRejectedCount()
+                + " | workers started=" + getPoolGrowthEvents() + " exited=" + getPoolShrinkEvents()
+                + " | queue depth peak=" + getPeakQueueDepth() + " p99<=" + getQueueDepthP99();
+    }
+
+    private static long micros(long nanos) {
+        return nanos == Long.MAX_VALUE ? Long.MAX_VALUE : nanos / 1_000;
+    }
+
+    @Override
+    public long getQueueWaitP50Micros() {
+        return micros(queueWaitNanos.snapshot().getPercentile(50));
+    }
+
+    @Override
+    public long getQueueWaitP99Micros() {
+        return micros(queueWaitNanos.snapshot().getPercentile(99));
+    }
+
+    @Override
+    public double getQueueWaitMeanMicros() {
+        return queueWaitNanos.snapshot().getMean() / 1_000;
+    }
+
+    @Override
+    public long getExecutionTimeP50Micros() {
+        return micros(executionNanos.snapshot().getPercentile(50));
+    }
+
+    @Override
+    public long getExecutionTimeP99Micros() {
+        return micros(executionNanos.snapshot().getPercentile(99));
+    }
+
+    @Override
+    public double getExecutionTimeMeanMicros() {
+        return executionNanos.snapshot().getMean() / 1_000;
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return counters.rejected.sum();
+    }
+
+    @Override
+    public long getPoolGrowthEvents() {
+        return counters.workersStarted.sum();
+    }
+
+    @Override
+    public long getPoolShrinkEvents() {
+        return counters.workersExited.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+
+    @Override
+    public int getPeakQueueDepth() {
+        return (int) Math.max(0, peakQueueDepth.get());
+    }
+
+    @Override
+    public long getQueueDepthP99() {
+        return queueDepth.snapshot().getPercentile(99);
+    }
+}
@@ -1,7 +1,12 @@
+import java.time.Duration;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
 
 public class ParallelExamples {
+    // Thread kind used by the blocking examples, chosen once in main()
+    private static ExecutionMode mode = ExecutionMode.PLATFORM;
+    // How volatileExample's reader waits for the flag; timedSleep(100ms) was the old polling loop
+    private static WaitStrategy waitStrategy = WaitStrategy.spinThenPark(1_000);
 
     public static void semaphoreExample() {
         System.out.println("\n=== Semaphore Example ===");
@@ -21,9 +26,10 @@ public class ParallelExamples {
             }
         };
         
+        ThreadFactory threadFactory = mode.threadFactory("Thread-");
         Thread[] threads = new Thread[10];
         for (int i = 0; i < 10; i++) {
-            threads[i] = new Thread(task, "Thread-" + (i + 1));
+            threads[i] = threadFactory.newThread(task);
             threads[i].start();
         }
         
@@ -36,6 +42,53 @@ public class ParallelExamples {
         }
     }
 
+    public static void adaptiveLimiterExample() {
+        System.out.println("\n=== Adaptive Limiter Example ===");
+        AdaptiveLimiter limiter = new AdaptiveLimiter(3, 1, 50);
+        AtomicInteger downstreamActive = new AtomicInteger();
+        
+        // Downstream that handles 4 calls at once; anything beyond that queues
+        Runnable task = () -> {
+            for (int i = 0; i < 30; i++) {
+                try {
+                    AdaptiveLimiter.Permit permit = limiter.tryAcquire(200, TimeUnit.MILLISECONDS);
+                    if (permit == null) {
+                        continue;
+                    }
+                    try {
+                        int active = downstreamActive.incrementAndGet();
+                        Thread.sleep(20 + 10 * Math.max(0, active - 4));
+                    } finally {
+                        downstreamActive.decrementAndGet();
+                        permit.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        };
+        
+        ThreadFactory threadFactory = mode.threadFactory("Client-");
+        Thread[] threads = new Thread[20];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = threadFactory.newThread(task);
+            threads[i].start();
+        }
+        
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+        
+        System.out.println("Settled limit: " + limiter.getLimit() + " (downstream capacity 4)");
+        System.out.println("Latency floor: " + limiter.getMinLatency(TimeUnit.MILLISECONDS) + " ms, rejections: "
+                + limiter.getRejections());
+    }
+
     public static void atomicExample() {
         System.out.println("\n=== Atomic Classes Example ===");
         AtomicInteger counter = new AtomicInteger(0);
@@ -62,6 +115,39 @@ public class ParallelExamples {
         System.out.println("Final counter value: " + counter.get() + " (expected 2000)");
     }
 
+    public static void stripedCounterExample() {
+        System.out.println("\n=== Striped Counter Example ===");
+        StripedLongAdder counter = new StripedLongAdder();
+        StripedLongAccumulator maxSeen = StripedLongAccumulator.max();
+        StripedHistogram batchSizes = new StripedHistogram(1, 10, 100, 1000);
+        
+        Runnable incrementTask = () -> {
+            for (int i = 0; i < 1000; i++) {
+                counter.increment();
+                maxSeen.accumulate(i);
+                batchSizes.record(i);
+            }
+        };
+        
+        Thread t1 = new Thread(incrementTask);
+        Thread t2 = new Thread(incrementTask);
+        
+        t1.start();
+        t2.start();
+        
+        try {
+            t1.join();
+            t2.join();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        
+        System.out.println("Final counter value: " + counter.sum() + " (expected 2000) across "
+                + counter.getStripes() + " stripes");
+        System.out.println("Max value seen: " + maxSeen.get() + " (expected 999)");
+        System.out.println("Histogram: " + batchSizes.snapshot());
+    }
+
     public static void volatileExample() {
         System.out.println("\n=== Volatile Keyword Example ===");
         class SharedData {
@@ -69,11 +155,14 @@ public class ParallelExamples {
         }
         
         SharedData data = new SharedData();
+        long[] setAt = new long[1];
         
         Thread writer = new Thread(() -> {
             try {
                 Thread.sleep(1000);
+                setAt[0] = System.nanoTime();
                 data.flag = true;
+                waitStrategy.signalAll();
                 System.out.println("Writer: Flag set to true");
             } catch (InterruptedException e) {
                 e.printStackTrace();
@@ -81,14 +170,13 @@ public class ParallelExamples {
         });
         
         Thread reader = new Thread(() -> {
-            while (!data.flag) {
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+            try {
+                waitStrategy.await(() -> data.flag);
+                System.out.println("Reader: Flag is now true, woke "
+                        + (System.nanoTime() - setAt[0]) / 1_000 + " us after the write (" + waitStrategy + ")");
+            } catch (InterruptedException e) {
+                e.printStackTrace();
             }
-            System.out.println("Reader: Flag is now true");
         });
         
         reader.start();
@@ -104,14 +192,6 @@ public class ParallelExamples {
 
     public static void threadPoolExample() {
         System.out.println("\n=== ThreadPoolExecutor Example ===");
-        ThreadPoolExecutor executor = new ThreadPoolExecutor(
-            2,
-            4,
-            1,
-            TimeUnit.SECONDS,
-            new LinkedBlockingQueue<>(10)
-        );
-        
         Runnable task = () -> {
             try {
                 System.out.println(Thread.currentThread().getName() + " executing task");
@@ -121,6 +201,26 @@ public class ParallelExamples {
                 e.printStackTrace();
             }
         };
+
+        if (mode == ExecutionMode.VIRTUAL) {
+            // Virtual threads are cheap to create and must not be pooled: one per task
+            System.out.println("VIRTUAL mode: one virtual thread per task instead of a pool");
+            try (ExecutorService executor = Executors.newThreadPerTaskExecutor(mode.threadFactory("task-"))) {
+                for (int i = 0; i < 10; i++) {
+                    executor.execute(task);
+                }
+            }
+            return;
+        }
+
+        InstrumentedThreadPoolExecutor executor = new InstrumentedThreadPoolExecutor(
+            2,
+            4,
+            1,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(10),
+            mode.threadFactory("pool-worker-")
+        );
         
         for (int i = 0; i < 10; i++) {
             executor.execute(task);
@@ -132,11 +232,20 @@ public class ParallelExamples {
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
+        System.out.println("Pool stats: " + executor.getStatsReport());
+        // The same Runnable went in ten times; each submit is its own sample
+        long samples = executor.getQueueWaitSnapshot().getCount();
+        if (samples != 10) {
+            throw new IllegalStateException("expected 10 queue-wait samples, got " + samples);
+        }
     }
 
     public static void scheduledThreadPoolExample() {
         System.out.println("\n=== ScheduledThreadPoolExecutor Example ===");
-        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        // Timer threads stay platform threads in every mode: the scheduler
+        // pools them, and the scheduled tasks here are too short to benefit
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2,
+                ExecutionMode.PLATFORM.threadFactory("scheduler-"));
         
         System.out.println("Scheduling tasks...");
         
@@ -166,14 +275,107 @@ public class ParallelExamples {
         scheduler.shutdown();
     }
 
+    public static void timingWheelExample() {
+        System.out.println("\n=== Timing Wheel Scheduler Example ===");
+        ScheduledExecutorService scheduler = new TimingWheelScheduler(10, TimeUnit.MILLISECONDS, 64, 2);
+        long start = System.nanoTime();
+        
+        scheduler.schedule(() -> {
+            System.out.println("Task executed after ~2 second delay: " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }, 2, TimeUnit.SECONDS);
+        
+        ScheduledFuture<?> cancelled = scheduler.schedule(() -> {
+            System.out.println("This task was cancelled and should never run");
+        }, 1, TimeUnit.SECONDS);
+        cancelled.cancel(false);
+        
+        scheduler.scheduleAtFixedRate(() -> {
+            System.out.println("Fixed rate task - every 1 second");
+        }, 0, 1, TimeUnit.SECONDS);
+        
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                System.out.println("Fixed delay task - 500ms after completion");
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }, 0, 500, TimeUnit.MILLISECONDS);
+        
+        try {
+            Thread.sleep(3000);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        
+        scheduler.shutdown();
+    }
+
+    public static void virtualThreadScaleExample() {
+        System.out.println("\n=== Virtual Thread Scale Example ===");
+        int taskCount = mode == ExecutionMode.VIRTUAL ? 100_000 : 1_000;
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(mode.threadFactory("blocking-"))) {
+            for (int i = 0; i < taskCount; i++) {
+                executor.execute(() -> {
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+        }
+        System.out.println(taskCount + " blocking tasks on " + mode + " threads took "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    public static void pinningExample() {
+        System.out.println("\n=== Virtual Thread Pinning Example ===");
+        if (mode != ExecutionMode.VIRTUAL) {
+            System.out.println("Skipped - only virtual threads can be pinned");
+            return;
+        }
+        Object monitor = new Object();
+
+        // Same shape as SynchronizedExample.criticalSection, but blocking inside it
+        Runnable criticalSection = () -> {
+            synchronized (monitor) {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        PinningMonitor pinning = new PinningMonitor(Duration.ofMillis(20));
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(mode.threadFactory("pinned-"))) {
+            for (int i = 0; i < 5; i++) {
+                executor.execute(criticalSection);
+            }
+        }
+        pinning.close();
+        pinning.printReport();
+    }
+
     public static void main(String[] args) {
         System.out.println("===== Parallel Computation Examples =====");
+        if (args.length > 0) {
+            mode = ExecutionMode.valueOf(args[0].toUpperCase());
+        }
+        System.out.println("Execution mode: " + mode);
         
         semaphoreExample();
+        adaptiveLimiterExample();
         atomicExample();
+        stripedCounterExample();
         volatileExample();
         threadPoolExample();
         scheduledThreadPoolExample();
+        timingWheelExample();
+        virtualThreadScaleExample();
+        pinningExample();
         
         System.out.println("\n===== All Examples Completed =====");
     }
@@ -0,0 +1,73 @@
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+// Listens for JFR pinning events: a virtual thread that blocks while holding a
+// monitor (synchronized) or inside a native frame keeps its carrier thread busy
+public class PinningMonitor implements AutoCloseable {
+    private final RecordingStream stream = new RecordingStream();
+    private final AtomicLong pinnedCount = new AtomicLong();
+    private final AtomicLong pinnedNanos = new AtomicLong();
+    private final Map<String, AtomicLong> sites = new ConcurrentHashMap<>();
+    private boolean closed;
+
+    public PinningMonitor(Duration threshold) {
+        stream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        stream.onEvent("jdk.VirtualThreadPinned", this::record);
+        stream.startAsync();
+    }
+
+    private void record(RecordedEvent event) {
+        pinnedCount.incrementAndGet();
+        pinnedNanos.addAndGet(event.getDuration().toNanos());
+        sites.computeIfAbsent(callSite(event), site -> new AtomicLong()).incrementAndGet();
+    }
+
+    // First frame outside the JDK, i.e. the application code that pinned
+    private static String callSite(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "<no stack trace>";
+        }
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+            }
+        }
+        return "<jdk internal>";
+    }
+
+    public long getPinnedCount() {
+        return pinnedCount.get();
+    }
+
+    public Duration getPinnedTime() {
+        return Duration.ofNanos(pinnedNanos.get());
+    }
+
+    public Map<String, Long> getPinnedSites() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        sites.forEach((site, count) -> snapshot.put(site, count.get()));
+        return snapshot;
+    }
+
+    public void printReport() {
+        System.out.println("Pinned virtual threads: " + getPinnedCount() + " (total " + getPinnedTime().toMillis() + " ms)");
+        getPinnedSites().forEach((site, count) -> System.out.println("  " + count + "x at " + site));
+    }
+
+    // Flushes pending events so the counters are complete before returning
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        stream.stop();
+        stream.close();
+    }
+}
@@ -0,0 +1,75 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Shared layout for the striped counters: one row of slots per stripe in a
+// single AtomicLongArray. Rows are padded to a multiple of 128 bytes so two
+// stripes never share a cache line (or an adjacent-line prefetch pair).
+// A thread starts on a stripe picked by hashing its id. As in LongAdder,
+// a failed CAS on its stripe means another thread shares it, so the thread
+// rehashes its probe and moves on; two unlucky threads do not stay stuck
+// on one cell. The probe is per thread and shared by all striped cells.
+abstract class StripedCells {
+    private static final int LONGS_PER_LINE_PAIR = 16;
+    private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(() -> {
+        long id = Thread.currentThread().threadId();
+        int h = (int) (id * 0x9E3779B97F4A7C15L >>> 32);
+        h ^= h >>> 16;
+        // xorshift never leaves 0
+        return new int[] { h == 0 ? 1 : h };
+    });
+
+    final AtomicLongArray cells;
+    final int stripes;
+    final int rowWidth;
+    private final int mask;
+
+    StripedCells(int stripes, int slotsPerStripe, long initialValue) {
+        if (stripes < 1 || slotsPerStripe < 1) {
+            throw new IllegalArgumentException("stripes and slots must be positive");
+        }
+        this.stripes = roundUpToPowerOfTwo(stripes);
+        this.mask = this.stripes - 1;
+        this.rowWidth = (slotsPerStripe + LONGS_PER_LINE_PAIR - 1) / LONGS_PER_LINE_PAIR * LONGS_PER_LINE_PAIR;
+        // Extra leading pad keeps row 0 away from the array header
+        this.cells = new AtomicLongArray(LONGS_PER_LINE_PAIR + this.stripes * rowWidth);
+        if (initialValue != 0) {
+            for (int s = 0; s < this.stripes; s++) {
+                for (int slot = 0; slot < slotsPerStripe; slot++) {
+                    cells.set(index(s, slot), initialValue);
+                }
+            }
+        }
+    }
+
+    // Two stripes per core keeps hash collisions between threads rare
+    static int defaultStripes() {
+        return roundUpToPowerOfTwo(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    static int roundUpToPowerOfTwo(int value) {
+        int highest = Integer.highestOneBit(Math.max(1, value));
+        return highest == value ? value : highest << 1;
+    }
+
+    final int currentStripe() {
+        return PROBE.get()[0] & mask;
+    }
+
+    // Called after a failed CAS on the current stripe; returns the new one
+    final int rehashStripe() {
+        int[] probe = PROBE.get();
+        int h = probe[0];
+        h ^= h << 13;
+        h ^= h >>> 17;
+        h ^= h << 5;
+        probe[0] = h;
+        return h & mask;
+    }
+
+    final int index(int stripe, int slot) {
+        return LONGS_PER_LINE_PAIR + stripe * rowWidth + slot;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+}
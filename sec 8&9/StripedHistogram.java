@@ -0,0 +1,145 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Fixed-bucket histogram where each thread records into its own padded row
+// of bucket counters. snapshot() adds the rows up on read.
+public class StripedHistogram extends StripedCells {
+    private final long[] upperBounds;
+    private final int sumSlot;
+
+    // upperBounds are inclusive and ascending; values above the last bound
+    // go into an extra overflow bucket
+    public StripedHistogram(long... upperBounds) {
+        this(defaultStripes(), upperBounds);
+    }
+
+    public StripedHistogram(int stripes, long... upperBounds) {
+        super(stripes, upperBounds.length + 2, 0);
+        for (int i = 1; i < upperBounds.length; i++) {
+            if (upperBounds[i] <= upperBounds[i - 1]) {
+                throw new IllegalArgumentException("bucket bounds must be ascending");
+            }
+        }
+        this.upperBounds = upperBounds.clone();
+        this.sumSlot = upperBounds.length + 1;
+    }
+
+    // Buckets first, 2*first, 4*first, ... for latency-style data
+    public static StripedHistogram exponential(long first, int buckets) {
+        long[] bounds = new long[buckets];
+        long bound = first;
+        for (int i = 0; i < buckets; i++) {
+            bounds[i] = bound;
+            bound = bound > Long.MAX_VALUE / 2 ? Long.MAX_VALUE : bound * 2;
+        }
+        return new StripedHistogram(bounds);
+    }
+
+    // Each power-of-two range from first up to max split into subBuckets equal
+    // steps, so a reported percentile is within 1/subBuckets of the real value
+    public static StripedHistogram logLinear(long first, long max, int subBuckets) {
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(first);
+        for (long base = first; base < max && base <= Long.MAX_VALUE / 2; base *= 2) {
+            long step = Math.max(1, base / subBuckets);
+            for (long bound = base + step; bound <= base * 2; bound += step) {
+                bounds.add(bound);
+            }
+        }
+        return new StripedHistogram(bounds.stream().mapToLong(Long::longValue).distinct().toArray());
+    }
+
+    public void record(long value) {
+        int bucket = Arrays.binarySearch(upperBounds, value);
+        if (bucket < 0) {
+            bucket = -bucket - 1;
+        }
+        int stripe = currentStripe();
+        int index = index(stripe, bucket);
+        long count = cells.get(index);
+        if (!cells.weakCompareAndSetVolatile(index, count, count + 1)) {
+            stripe = rehashStripe();
+            cells.getAndIncrement(index(stripe, bucket));
+        }
+        cells.getAndAdd(index(stripe, sumSlot), value);
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[upperBounds.length + 1];
+        long sum = 0;
+        for (int s = 0; s < stripes; s++) {
+            for (int b = 0; b < counts.length; b++) {
+                counts[b] += cells.get(index(s, b));
+            }
+            sum += cells.get(index(s, sumSlot));
+        }
+        return new Snapshot(upperBounds, counts, sum);
+    }
+
+    public void reset() {
+        for (int s = 0; s < stripes; s++) {
+            for (int slot = 0; slot <= sumSlot; slot++) {
+                cells.set(index(s, slot), 0);
+            }
+        }
+    }
+
+    public static class Snapshot {
+        private final long[] upperBounds;
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+
+        Snapshot(long[] upperBounds, long[] counts, long sum) {
+            this.upperBounds = upperBounds;
+            this.counts = counts;
+            this.sum = sum;
+            this.count = Arrays.stream(counts).sum();
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        // Count in bucket i; the last index is the overflow bucket
+        public long getBucketCount(int bucket) {
+            return counts[bucket];
+        }
+
+        public long[] getUpperBounds() {
+            return upperBounds.clone();
+        }
+
+        // Upper bound of the bucket holding the given percentile (0-100);
+        // Long.MAX_VALUE when it falls into the overflow bucket
+        public long getPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile / 100.0 * count);
+            long seen = 0;
+            for (int b = 0; b < upperBounds.length; b++) {
+                seen += counts[b];
+                if (seen >= rank) {
+                    return upperBounds[b];
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.1f p50<=%d p99<=%d", count, getMean(),
+                    getPercentile(50), getPercentile(99));
+        }
+    }
+}
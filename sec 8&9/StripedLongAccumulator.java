@@ -0,0 +1,64 @@
+import java.util.function.LongBinaryOperator;
+
+// Striped version of LongAccumulator for max, min or any other associative,
+// commutative function: each thread folds into its own cell, get() folds
+// the cells together.
+public class StripedLongAccumulator extends StripedCells {
+    private final LongBinaryOperator function;
+    private final long identity;
+
+    public StripedLongAccumulator(LongBinaryOperator function, long identity) {
+        this(function, identity, defaultStripes());
+    }
+
+    public StripedLongAccumulator(LongBinaryOperator function, long identity, int stripes) {
+        super(stripes, 1, identity);
+        this.function = function;
+        this.identity = identity;
+    }
+
+    public static StripedLongAccumulator max() {
+        return new StripedLongAccumulator(Math::max, Long.MIN_VALUE);
+    }
+
+    public static StripedLongAccumulator min() {
+        return new StripedLongAccumulator(Math::min, Long.MAX_VALUE);
+    }
+
+    public void accumulate(long value) {
+        int index = index(currentStripe(), 0);
+        long current = cells.get(index);
+        long next;
+        // Most max/min updates do not change the cell, so skip the CAS then
+        while ((next = function.applyAsLong(current, value)) != current
+                && !cells.weakCompareAndSetVolatile(index, current, next)) {
+            index = index(rehashStripe(), 0);
+            current = cells.get(index);
+        }
+    }
+
+    public long get() {
+        long result = identity;
+        for (int s = 0; s < stripes; s++) {
+            result = function.applyAsLong(result, cells.get(index(s, 0)));
+        }
+        return result;
+    }
+
+    public long getThenReset() {
+        long result = identity;
+        for (int s = 0; s < stripes; s++) {
+            result = function.applyAsLong(result, cells.getAndSet(index(s, 0), identity));
+        }
+        return result;
+    }
+
+    public void reset() {
+        getThenReset();
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
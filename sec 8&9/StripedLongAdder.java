@@ -0,0 +1,56 @@
+// Contention-free long sum: every thread adds into its own padded cell and
+// readers add the cells up. sum() is not an atomic snapshot while writers
+// are active, but it never misses an update that happened before the call.
+public class StripedLongAdder extends StripedCells {
+
+    public StripedLongAdder() {
+        this(defaultStripes());
+    }
+
+    public StripedLongAdder(int stripes) {
+        super(stripes, 1, 0);
+    }
+
+    // One CAS on the thread's stripe; if that fails, move and add unconditionally
+    public void add(long delta) {
+        int index = index(currentStripe(), 0);
+        long current = cells.get(index);
+        if (!cells.weakCompareAndSetVolatile(index, current, current + delta)) {
+            cells.getAndAdd(index(rehashStripe(), 0), delta);
+        }
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void decrement() {
+        add(-1);
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int s = 0; s < stripes; s++) {
+            sum += cells.get(index(s, 0));
+        }
+        return sum;
+    }
+
+    // Reads and clears each cell atomically, so no update is counted twice or lost
+    public long sumThenReset() {
+        long sum = 0;
+        for (int s = 0; s < stripes; s++) {
+            sum += cells.getAndSet(index(s, 0), 0);
+        }
+        return sum;
+    }
+
+    public void reset() {
+        sumThenReset();
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(sum());
+    }
+}
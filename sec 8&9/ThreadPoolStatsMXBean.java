@@ -0,0 +1,32 @@
+// JMX view of an InstrumentedThreadPoolExecutor; times are in microseconds
+public interface ThreadPoolStatsMXBean {
+    long getQueueWaitP50Micros();
+
+    long getQueueWaitP99Micros();
+
+    double getQueueWaitMeanMicros();
+
+    long getExecutionTimeP50Micros();
+
+    long getExecutionTimeP99Micros();
+
+    double getExecutionTimeMeanMicros();
+
+    long getRejectedCount();
+
+    long getPoolGrowthEvents();
+
+    long getPoolShrinkEvents();
+
+    int getPoolSize();
+
+    int getActiveCount();
+
+    int getQueueDepth();
+
+    int getPeakQueueDepth();
+
+    long getQueueDepthP99();
+
+    long getCompletedTaskCount();
+}
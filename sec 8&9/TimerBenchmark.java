@@ -0,0 +1,64 @@
+import java.util.concurrent.*;
+
+// Cost of keeping a million mostly-cancelled timeouts: schedules N timers
+// 10-60 s out, cancels 90% of them, and reports per-operation time and the
+// heap still held. Run: java TimerBenchmark [timers]
+public class TimerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int timers = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.println("===== Timer Benchmark (" + timers + " timers, 90% cancelled) =====");
+        for (int round = 0; round < 2; round++) {
+            // First round is warm-up
+            boolean print = round == 1;
+
+            ScheduledThreadPoolExecutor heap = new ScheduledThreadPoolExecutor(1);
+            run("ScheduledThreadPoolExecutor", heap, timers, print);
+
+            ScheduledThreadPoolExecutor heapRemoving = new ScheduledThreadPoolExecutor(1);
+            heapRemoving.setRemoveOnCancelPolicy(true);
+            run("STPE removeOnCancel", heapRemoving, timers, print);
+
+            run("TimingWheelScheduler", new TimingWheelScheduler(1), timers, print);
+        }
+    }
+
+    static void run(String name, ScheduledExecutorService scheduler, int timers, boolean print) throws Exception {
+        Runnable task = () -> { };
+        ScheduledFuture<?>[] futures = new ScheduledFuture<?>[timers];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < timers; i++) {
+            futures[i] = scheduler.schedule(task, random.nextLong(10_000, 60_000), TimeUnit.MILLISECONDS);
+        }
+        long scheduleNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < timers; i++) {
+            if (i % 10 != 0) {
+                futures[i].cancel(false);
+            }
+        }
+        long cancelNanos = System.nanoTime() - start;
+
+        // Give the wheel's ticker a moment to unlink the cancelled timers
+        Thread.sleep(200);
+        java.util.Arrays.fill(futures, null);
+        long retained = usedHeap();
+
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        if (print) {
+            System.out.printf("%-28s schedule %6.0f ns/op | cancel %6.0f ns/op | heap held %5d MB%n",
+                    name, (double) scheduleNanos / timers, (double) cancelNanos / (timers * 0.9),
+                    retained / (1024 * 1024));
+        }
+    }
+
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
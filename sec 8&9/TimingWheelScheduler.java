@@ -0,0 +1,479 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// ScheduledExecutorService built on a hierarchical hashed timing wheel.
+//
+// Time is cut into ticks. Level 0 has one bucket per tick for the next
+// wheelSize ticks; each level above covers wheelSize times the range of the
+// one below, with one bucket per lower-level rotation. A timer goes into the
+// lowest level whose range reaches its deadline. When a lower level comes
+// back round to 0 the matching bucket of the level above is cascaded down,
+// so every timer ends up in level 0 exactly on its tick.
+//
+// schedule() and cancel() are O(1): callers only push onto lock-free queues
+// and the single ticker thread links or unlinks the timer in its bucket.
+// Expired tasks run on a separate worker pool, never on the ticker.
+// Timers fire on the first tick at or after their deadline, so tick
+// duration is the timing resolution.
+public final class TimingWheelScheduler extends AbstractExecutorService implements ScheduledExecutorService {
+    private static final int RUNNING = 0;
+    private static final int SHUTDOWN = 1;
+    private static final int STOP = 2;
+
+    private final long tickNanos;
+    private final int wheelBits;
+    private final int wheelMask;
+    private final Bucket[][] wheels;
+    private final long startNanos = System.nanoTime();
+
+    // Owned by the ticker thread
+    private long currentTick;
+    private long timersInWheel;
+    private boolean periodicCancelled;
+
+    private final ConcurrentLinkedQueue<WheelTimer<?>> inbox = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<WheelTimer<?>> cancellations = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final ThreadPoolExecutor workers;
+    private final Thread ticker;
+    private final CountDownLatch tickerExited = new CountDownLatch(1);
+    private volatile int runState = RUNNING;
+    // Set by the ticker before its last look at the inbox
+    private volatile boolean tickerStopped;
+
+    public TimingWheelScheduler(int workerThreads) {
+        this(1, TimeUnit.MILLISECONDS, 512, workerThreads);
+    }
+
+    public TimingWheelScheduler(long tickDuration, TimeUnit unit, int wheelSize, int workerThreads) {
+        if (tickDuration <= 0 || workerThreads < 1) {
+            throw new IllegalArgumentException("tick duration and worker count must be positive");
+        }
+        if (wheelSize < 2 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheel size must be a power of two: " + wheelSize);
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheelBits = Integer.numberOfTrailingZeros(wheelSize);
+        this.wheelMask = wheelSize - 1;
+
+        // Enough levels to cover every representable tick
+        int levels = (63 + wheelBits - 1) / wheelBits;
+        this.wheels = new Bucket[levels][wheelSize];
+        for (Bucket[] wheel : wheels) {
+            for (int i = 0; i < wheelSize; i++) {
+                wheel[i] = new Bucket();
+            }
+        }
+
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), Thread.ofPlatform().name("timing-wheel-worker-", 1).factory());
+        this.ticker = new Thread(this::runTicker, "timing-wheel-ticker");
+        this.ticker.start();
+    }
+
+    // Doubly linked list of timers; only touched by the ticker thread
+    private static class Bucket {
+        WheelTimer<?> head;
+        WheelTimer<?> tail;
+
+        void add(WheelTimer<?> timer) {
+            timer.bucket = this;
+            timer.prev = tail;
+            timer.next = null;
+            if (tail == null) {
+                head = timer;
+            } else {
+                tail.next = timer;
+            }
+            tail = timer;
+        }
+
+        void remove(WheelTimer<?> timer) {
+            if (timer.prev == null) {
+                head = timer.next;
+            } else {
+                timer.prev.next = timer.next;
+            }
+            if (timer.next == null) {
+                tail = timer.prev;
+            } else {
+                timer.next.prev = timer.prev;
+            }
+            timer.prev = null;
+            timer.next = null;
+            timer.bucket = null;
+        }
+
+        WheelTimer<?> clear() {
+            WheelTimer<?> first = head;
+            head = null;
+            tail = null;
+            return first;
+        }
+    }
+
+    private class WheelTimer<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+        // > 0 fixed rate, < 0 fixed delay, 0 one-shot (same encoding as ScheduledThreadPoolExecutor)
+        private final long period;
+        private volatile long deadline;
+        private long tick;
+
+        // Ticker-thread state
+        Bucket bucket;
+        WheelTimer<?> prev;
+        WheelTimer<?> next;
+
+        WheelTimer(Callable<V> callable, long deadline) {
+            super(callable);
+            this.deadline = deadline;
+            this.period = 0;
+        }
+
+        WheelTimer(Runnable runnable, long deadline, long period) {
+            super(runnable, null);
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return period != 0;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other == this) {
+                return 0;
+            }
+            if (other instanceof WheelTimer<?> timer) {
+                return Long.compare(deadline - startNanos, timer.deadline - startNanos);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public void run() {
+            if (!isPeriodic()) {
+                super.run();
+            } else if (super.runAndReset()) {
+                deadline = period > 0 ? deadline + period : System.nanoTime() - period;
+                if (runState != RUNNING || !enqueue(this)) {
+                    super.cancel(false);
+                }
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                cancellations.add(this);
+            }
+            return cancelled;
+        }
+    }
+
+    private static long deadlineAfter(long delay, TimeUnit unit) {
+        long nanos = unit.toNanos(Math.max(0, delay));
+        // Keep deadline arithmetic clear of overflow, like ScheduledThreadPoolExecutor
+        return System.nanoTime() + Math.min(nanos, Long.MAX_VALUE >> 1);
+    }
+
+    // False if the ticker had already stopped and the timer was taken back.
+    // The ticker sets tickerStopped before its final drain, so either that
+    // drain sees the timer or the re-check here sees the flag.
+    private boolean enqueue(WheelTimer<?> timer) {
+        pending.incrementAndGet();
+        inbox.add(timer);
+        if (tickerStopped && inbox.remove(timer)) {
+            pending.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private <V> WheelTimer<V> submitTimer(WheelTimer<V> timer) {
+        if (runState != RUNNING) {
+            throw new RejectedExecutionException("Scheduler is shut down");
+        }
+        if (timer.getDelay(TimeUnit.NANOSECONDS) <= 0 && !timer.isPeriodic()) {
+            workers.execute(timer);
+        } else if (!enqueue(timer)) {
+            timer.cancel(false);
+            throw new RejectedExecutionException("Scheduler is shut down");
+        }
+        return timer;
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        Objects.requireNonNull(command);
+        return submitTimer(new WheelTimer<Void>(command, deadlineAfter(delay, unit), 0));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        Objects.requireNonNull(callable);
+        return submitTimer(new WheelTimer<>(callable, deadlineAfter(delay, unit)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        Objects.requireNonNull(command);
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive");
+        }
+        return submitTimer(new WheelTimer<Void>(command, deadlineAfter(initialDelay, unit), unit.toNanos(period)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        Objects.requireNonNull(command);
+        if (delay <= 0) {
+            throw new IllegalArgumentException("delay must be positive");
+        }
+        return submitTimer(new WheelTimer<Void>(command, deadlineAfter(initialDelay, unit), -unit.toNanos(delay)));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (runState != RUNNING) {
+            throw new RejectedExecutionException("Scheduler is shut down");
+        }
+        workers.execute(command);
+    }
+
+    // Timers accepted but not yet handed to a worker (includes cancelled ones
+    // the ticker has not unlinked yet)
+    public long getPendingCount() {
+        return pending.get();
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    private void runTicker() {
+        try {
+            while (true) {
+                drainInbox();
+                drainCancellations();
+                int state = runState;
+                if (state == STOP) {
+                    return;
+                }
+                if (state == SHUTDOWN) {
+                    if (!periodicCancelled) {
+                        cancelPeriodicTimers();
+                        drainCancellations();
+                    }
+                    if (pending.get() == 0) {
+                        return;
+                    }
+                }
+
+                long dueTick = (System.nanoTime() - startNanos) / tickNanos;
+                while (currentTick <= dueTick) {
+                    if (timersInWheel == 0) {
+                        // Nothing to cascade or expire, skip the idle ticks
+                        currentTick = dueTick + 1;
+                        break;
+                    }
+                    processTick(currentTick++);
+                }
+
+                long sleep = startNanos + currentTick * tickNanos - System.nanoTime();
+                if (sleep > 0) {
+                    LockSupport.parkNanos(this, sleep);
+                }
+            }
+        } finally {
+            tickerStopped = true;
+            // Timers enqueued while the ticker was exiting would never fire;
+            // after shutdownNow() they are collected there instead
+            if (runState != STOP) {
+                WheelTimer<?> late;
+                while ((late = inbox.poll()) != null) {
+                    pending.decrementAndGet();
+                    late.cancel(false);
+                }
+            }
+            // shutdownNow() takes the workers' queue itself once the ticker
+            // has exited, so expired timers still waiting there are returned
+            workers.shutdown();
+            tickerExited.countDown();
+        }
+    }
+
+    private void drainInbox() {
+        WheelTimer<?> timer;
+        while ((timer = inbox.poll()) != null) {
+            if (timer.isPeriodic() && runState != RUNNING) {
+                timer.cancel(false);
+            }
+            if (timer.isCancelled()) {
+                pending.decrementAndGet();
+                continue;
+            }
+            long relative = timer.deadline - startNanos;
+            timer.tick = relative <= 0 ? 0 : (relative + tickNanos - 1) / tickNanos;
+            place(timer, currentTick);
+            timersInWheel++;
+        }
+    }
+
+    private void drainCancellations() {
+        WheelTimer<?> timer;
+        while ((timer = cancellations.poll()) != null) {
+            if (timer.bucket != null) {
+                timer.bucket.remove(timer);
+                timersInWheel--;
+                pending.decrementAndGet();
+            }
+        }
+    }
+
+    // Puts a timer into the lowest level whose range covers its deadline
+    private void place(WheelTimer<?> timer, long now) {
+        long delta = timer.tick - now;
+        if (delta <= 0) {
+            wheels[0][(int) (now & wheelMask)].add(timer);
+            return;
+        }
+        for (int level = 0; level < wheels.length; level++) {
+            int shift = (level + 1) * wheelBits;
+            if (level == wheels.length - 1 || shift >= 63 || delta < (1L << shift)) {
+                int index = (int) ((timer.tick >>> (level * wheelBits)) & wheelMask);
+                wheels[level][index].add(timer);
+                return;
+            }
+        }
+    }
+
+    private void processTick(long tick) {
+        // Find the highest level that just completed a rotation of the level below
+        int top = 0;
+        while (top + 1 < wheels.length
+                && (tick & ((1L << ((top + 1) * wheelBits)) - 1)) == 0) {
+            top++;
+        }
+        // Cascade from the top down so timers can fall more than one level
+        for (int level = top; level >= 1; level--) {
+            Bucket bucket = wheels[level][(int) ((tick >>> (level * wheelBits)) & wheelMask)];
+            WheelTimer<?> timer = bucket.clear();
+            while (timer != null) {
+                WheelTimer<?> next = timer.next;
+                timer.prev = null;
+                timer.next = null;
+                timer.bucket = null;
+                place(timer, tick);
+                timer = next;
+            }
+        }
+
+        WheelTimer<?> timer = wheels[0][(int) (tick & wheelMask)].clear();
+        while (timer != null) {
+            WheelTimer<?> next = timer.next;
+            timer.prev = null;
+            timer.next = null;
+            timer.bucket = null;
+            timersInWheel--;
+            pending.decrementAndGet();
+            if (!timer.isCancelled()) {
+                try {
+                    workers.execute(timer);
+                } catch (RejectedExecutionException e) {
+                    timer.cancel(false);
+                }
+            }
+            timer = next;
+        }
+    }
+
+    // Same default as ScheduledThreadPoolExecutor: periodic tasks stop at shutdown,
+    // one-shot delayed tasks still run
+    private void cancelPeriodicTimers() {
+        periodicCancelled = true;
+        for (Bucket[] wheel : wheels) {
+            for (Bucket bucket : wheel) {
+                for (WheelTimer<?> timer = bucket.head; timer != null; timer = timer.next) {
+                    if (timer.isPeriodic()) {
+                        timer.cancel(false);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (runState == RUNNING) {
+            runState = SHUTDOWN;
+        }
+        LockSupport.unpark(ticker);
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        runState = STOP;
+        LockSupport.unpark(ticker);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                tickerExited.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        // The ticker has exited, so the wheels can be read from this thread
+        List<Runnable> notRun = new ArrayList<>();
+        for (Bucket[] wheel : wheels) {
+            for (Bucket bucket : wheel) {
+                for (WheelTimer<?> timer = bucket.clear(); timer != null; timer = timer.next) {
+                    if (!timer.isCancelled()) {
+                        notRun.add(timer);
+                    }
+                }
+            }
+        }
+        WheelTimer<?> timer;
+        while ((timer = inbox.poll()) != null) {
+            if (!timer.isCancelled()) {
+                notRun.add(timer);
+            }
+        }
+        notRun.addAll(workers.shutdownNow());
+        return notRun;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return runState != RUNNING;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return tickerExited.getCount() == 0 && workers.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!tickerExited.await(timeout, unit)) {
+            return false;
+        }
+        return workers.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,182 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+// How a thread waits for another thread to flip a flag. The strategies trade
+// CPU for wake-up latency, from busy spinning (sub-microsecond, one core
+// burned per waiter) to timed sleeping (cheap, up to one sleep period late).
+// The waited-on state must be volatile (or otherwise safely published); the
+// signalling side calls signalAll() after changing it.
+public interface WaitStrategy {
+
+    void await(BooleanSupplier condition) throws InterruptedException;
+
+    // Only strategies that block need to be woken; for the others this is a no-op
+    default void signalAll() {
+    }
+
+    static WaitStrategy busySpin() {
+        return new BusySpin();
+    }
+
+    static WaitStrategy spinThenYield(int spins) {
+        return new SpinThenYield(spins);
+    }
+
+    static WaitStrategy spinThenPark(int spins) {
+        return new SpinThenPark(spins);
+    }
+
+    static WaitStrategy timedSleep(long sleep, TimeUnit unit) {
+        return new TimedSleep(unit.toNanos(sleep));
+    }
+
+    // What Section6Examples.conditionExample does: always park on a Condition
+    static WaitStrategy lockCondition() {
+        return new LockCondition();
+    }
+
+    final class BusySpin implements WaitStrategy {
+        @Override
+        public void await(BooleanSupplier condition) throws InterruptedException {
+            while (!condition.getAsBoolean()) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                Thread.onSpinWait();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "busy-spin";
+        }
+    }
+
+    final class SpinThenYield implements WaitStrategy {
+        private final int spins;
+
+        SpinThenYield(int spins) {
+            this.spins = spins;
+        }
+
+        @Override
+        public void await(BooleanSupplier condition) throws InterruptedException {
+            int attempts = 0;
+            while (!condition.getAsBoolean()) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (attempts++ < spins) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "spin-then-yield(" + spins + ")";
+        }
+    }
+
+    final class SpinThenPark implements WaitStrategy {
+        private final int spins;
+        private final ConcurrentLinkedQueue<Thread> parked = new ConcurrentLinkedQueue<>();
+
+        SpinThenPark(int spins) {
+            this.spins = spins;
+        }
+
+        @Override
+        public void await(BooleanSupplier condition) throws InterruptedException {
+            for (int i = 0; i < spins; i++) {
+                if (condition.getAsBoolean()) {
+                    return;
+                }
+                Thread.onSpinWait();
+            }
+            Thread current = Thread.currentThread();
+            parked.add(current);
+            try {
+                // Re-check after registering so a signal between the spin and the park is not lost
+                while (!condition.getAsBoolean()) {
+                    LockSupport.park(this);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+            } finally {
+                parked.remove(current);
+            }
+        }
+
+        @Override
+        public void signalAll() {
+            for (Thread thread : parked) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "spin-then-park(" + spins + ")";
+        }
+    }
+
+    final class TimedSleep implements WaitStrategy {
+        private final long sleepNanos;
+
+        TimedSleep(long sleepNanos) {
+            this.sleepNanos = sleepNanos;
+        }
+
+        @Override
+        public void await(BooleanSupplier condition) throws InterruptedException {
+            while (!condition.getAsBoolean()) {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "timed-sleep(" + TimeUnit.NANOSECONDS.toMicros(sleepNanos) + "us)";
+        }
+    }
+
+    final class LockCondition implements WaitStrategy {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+
+        @Override
+        public void await(BooleanSupplier condition) throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                while (!condition.getAsBoolean()) {
+                    changed.await();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void signalAll() {
+            lock.lock();
+            try {
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "lock-condition";
+        }
+    }
+}
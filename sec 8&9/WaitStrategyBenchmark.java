@@ -0,0 +1,79 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// One signaller hands a sequence number to one waiter every few hundred
+// microseconds. For each wait strategy reports how late the waiter woke up
+// (publish to wake-up) and how much CPU the waiter burned doing it.
+// Run: java WaitStrategyBenchmark [handoffs]
+public class WaitStrategyBenchmark {
+    private static volatile long published;
+    private static volatile long publishedAt;
+    private static volatile long consumed;
+
+    public static void main(String[] args) throws InterruptedException {
+        int handoffs = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        WaitStrategy[] strategies = {
+            WaitStrategy.busySpin(),
+            WaitStrategy.spinThenYield(100),
+            WaitStrategy.spinThenPark(1_000),
+            WaitStrategy.lockCondition(),
+            WaitStrategy.timedSleep(1, TimeUnit.MILLISECONDS),
+        };
+
+        System.out.println("===== Wait Strategy Benchmark (" + handoffs + " handoffs, "
+                + Runtime.getRuntime().availableProcessors() + " cores) =====");
+        System.out.printf("%-22s %10s %10s %10s %12s%n", "strategy", "p50 us", "p99 us", "p99.9 us", "waiter CPU");
+        for (WaitStrategy strategy : strategies) {
+            // Short warm-up run first
+            run(strategy, handoffs / 10, false);
+            run(strategy, handoffs, true);
+        }
+    }
+
+    static void run(WaitStrategy strategy, int handoffs, boolean print) throws InterruptedException {
+        published = 0;
+        consumed = 0;
+        StripedHistogram latency = StripedHistogram.logLinear(100, 10_000_000_000L, 8);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long[] waiterCpu = new long[1];
+
+        Thread waiter = new Thread(() -> {
+            long cpuStart = threads.getCurrentThreadCpuTime();
+            try {
+                for (long i = 1; i <= handoffs; i++) {
+                    long expected = i;
+                    strategy.await(() -> published >= expected);
+                    latency.record(System.nanoTime() - publishedAt);
+                    consumed = i;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            waiterCpu[0] = threads.getCurrentThreadCpuTime() - cpuStart;
+        }, "waiter");
+
+        long start = System.nanoTime();
+        waiter.start();
+        for (long i = 1; i <= handoffs; i++) {
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(50_000, 300_000));
+            publishedAt = System.nanoTime();
+            published = i;
+            strategy.signalAll();
+            while (consumed < i) {
+                Thread.yield();
+            }
+        }
+        waiter.join();
+        long wall = System.nanoTime() - start;
+
+        StripedHistogram.Snapshot snapshot = latency.snapshot();
+        if (print) {
+            System.out.printf("%-22s %10.1f %10.1f %10.1f %11.0f%%%n", strategy,
+                    snapshot.getPercentile(50) / 1e3, snapshot.getPercentile(99) / 1e3,
+                    snapshot.getPercentile(99.9) / 1e3, 100.0 * waiterCpu[0] / wall);
+        }
+    }
+}
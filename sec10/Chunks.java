@@ -0,0 +1,98 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+// How an index range is cut into leaf chunks for ParallelArrays. The grain
+// comes from the measured cost per element: a leaf should run long enough
+// (about TARGET_LEAF_NANOS) to dwarf the cost of forking it, yet there must
+// be several leaves per worker so stealing can even out uneven chunks. Jobs
+// too small to be worth forking at all become a single chunk.
+final class Chunks {
+    static final int SAMPLE_SIZE = 1024;
+    private static final long TARGET_LEAF_NANOS = 100_000;
+    private static final long SEQUENTIAL_NANOS = 50_000;
+    private static final int LEAVES_PER_WORKER = 4;
+
+    final int start;
+    final int end;
+    final int grain;
+    final int count;
+
+    private Chunks(int start, int end, int grain) {
+        this.start = start;
+        this.end = end;
+        this.grain = grain;
+        this.count = end <= start ? 0 : (int) (((long) end - start + grain - 1) / grain);
+    }
+
+    // Elements to run sequentially first to measure the per-element cost
+    static int sampleSize(int length) {
+        return Math.min(length, SAMPLE_SIZE);
+    }
+
+    // Chunks for [start, end), given that 'sampled' elements took sampleNanos
+    static Chunks plan(int start, int end, int sampled, long sampleNanos, int parallelism) {
+        int remaining = end - start;
+        if (remaining <= 0) {
+            return new Chunks(start, end, 1);
+        }
+        double nanosPerElement = Math.max(0.1, (double) sampleNanos / Math.max(1, sampled));
+        if (parallelism <= 1 || nanosPerElement * remaining < SEQUENTIAL_NANOS) {
+            return new Chunks(start, end, remaining);
+        }
+        long byCost = (long) (TARGET_LEAF_NANOS / nanosPerElement);
+        long byBalance = ((long) remaining + (long) parallelism * LEAVES_PER_WORKER - 1)
+                / ((long) parallelism * LEAVES_PER_WORKER);
+        return new Chunks(start, end, (int) Math.max(1, Math.min(byCost, byBalance)));
+    }
+
+    // One chunk per index, for work that is already cut into pieces of a useful size
+    static Chunks each(int count) {
+        return new Chunks(0, count, 1);
+    }
+
+    int from(int chunk) {
+        return start + chunk * grain;
+    }
+
+    int to(int chunk) {
+        return (int) Math.min(end, (long) start + (long) (chunk + 1) * grain);
+    }
+
+    // Runs body for every chunk index, in parallel when there is more than one
+    void forEach(ForkJoinPool pool, IntConsumer body) {
+        if (count == 1) {
+            body.accept(0);
+        } else if (count > 1) {
+            pool.invoke(new ChunkTask(body, 0, count));
+        }
+    }
+
+    // Splits the chunk index range in halves until single chunks remain
+    private static final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient IntConsumer body;
+        private final int lo;
+        private final int hi;
+
+        ChunkTask(IntConsumer body, int lo, int hi) {
+            this.body = body;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo == 1) {
+                body.accept(lo);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            ChunkTask right = new ChunkTask(body, mid, hi);
+            right.fork();
+            new ChunkTask(body, lo, mid).compute();
+            right.join();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.Random;
+
+// Dense row-major matrix of doubles: element (i, j) is data[i * cols + j]
+public final class Matrix {
+    final int rows;
+    final int cols;
+    final double[] data;
+
+    public Matrix(int rows, int cols) {
+        this(rows, cols, new double[checkedSize(rows, cols)]);
+    }
+
+    public Matrix(int rows, int cols, double[] data) {
+        if (data.length != checkedSize(rows, cols)) {
+            throw new IllegalArgumentException("need " + rows + " x " + cols + " elements, got " + data.length);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.data = data;
+    }
+
+    private static int checkedSize(int rows, int cols) {
+        if (rows < 0 || cols < 0 || (long) rows * cols > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("bad dimensions: " + rows + " x " + cols);
+        }
+        return rows * cols;
+    }
+
+    // Uniform in [-1, 1)
+    public static Matrix random(int rows, int cols, long seed) {
+        Random random = new Random(seed);
+        Matrix matrix = new Matrix(rows, cols);
+        for (int i = 0; i < matrix.data.length; i++) {
+            matrix.data[i] = random.nextDouble() * 2 - 1;
+        }
+        return matrix;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public double get(int row, int col) {
+        return data[row * cols + col];
+    }
+
+    public void set(int row, int col, double value) {
+        data[row * cols + col] = value;
+    }
+
+    public double maxAbsDifference(Matrix other) {
+        if (other.rows != rows || other.cols != cols) {
+            throw new IllegalArgumentException("dimension mismatch: " + rows + " x " + cols
+                    + " vs " + other.rows + " x " + other.cols);
+        }
+        double max = 0;
+        for (int i = 0; i < data.length; i++) {
+            max = Math.max(max, Math.abs(data[i] - other.data[i]));
+        }
+        return max;
+    }
+}
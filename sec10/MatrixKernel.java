@@ -0,0 +1,64 @@
+// Inner loop of MatrixMultiply: c += a * b for one block, where a is
+// rows x depth and b is depth x cols. Each operand is given as an array,
+// the offset of the block's first element and the array's row stride, so
+// blocks can be cut out of larger row-major matrices without copying.
+//
+// The vector kernel lives in its own class and is only loaded on request,
+// so everything else runs on JVMs started without jdk.incubator.vector.
+public interface MatrixKernel {
+
+    void multiplyAdd(double[] a, int aOffset, int aStride,
+                     double[] b, int bOffset, int bStride,
+                     double[] c, int cOffset, int cStride,
+                     int rows, int cols, int depth);
+
+    static MatrixKernel scalar() {
+        return new Scalar();
+    }
+
+    // Throws UnsupportedOperationException when the Vector API is not
+    // available (run with --add-modules jdk.incubator.vector) or the CPU has
+    // no SIMD registers wider than one double
+    static MatrixKernel vector() {
+        try {
+            return (MatrixKernel) Class.forName("VectorMatrixKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new UnsupportedOperationException("Vector API not available", e);
+        }
+    }
+
+    static MatrixKernel best() {
+        try {
+            return vector();
+        } catch (UnsupportedOperationException e) {
+            return scalar();
+        }
+    }
+
+    // Loop order i, p, j: the innermost loop streams a row of b into a row
+    // of c, which C2 can still auto-vectorize
+    final class Scalar implements MatrixKernel {
+        @Override
+        public void multiplyAdd(double[] a, int aOffset, int aStride,
+                                double[] b, int bOffset, int bStride,
+                                double[] c, int cOffset, int cStride,
+                                int rows, int cols, int depth) {
+            for (int i = 0; i < rows; i++) {
+                int aRow = aOffset + i * aStride;
+                int cRow = cOffset + i * cStride;
+                for (int p = 0; p < depth; p++) {
+                    double aip = a[aRow + p];
+                    int bRow = bOffset + p * bStride;
+                    for (int j = 0; j < cols; j++) {
+                        c[cRow + j] += aip * b[bRow + j];
+                    }
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "scalar";
+        }
+    }
+}
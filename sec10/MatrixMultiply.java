@@ -0,0 +1,92 @@
+import java.util.concurrent.ForkJoinPool;
+
+// Dense matrix multiply, c += a * b, tiled for the caches and spread over
+// a ForkJoinPool. The output is cut into tiles of rowBlock x colBlock and
+// each tile is one task, so no two tasks ever write the same element and
+// no merging is needed. A task walks the shared dimension in steps of
+// depthBlock, handing the kernel a block of a (rowBlock x depthBlock) and
+// of b (depthBlock x colBlock) small enough to stay in cache while the
+// kernel makes its passes over them.
+//
+// The default blocks keep the b block at 256 KB and the a block at 64 KB.
+// Tiles are numbered row-major, so neighbouring tasks share the same rows
+// of a.
+public class MatrixMultiply {
+    static final int ROW_BLOCK = 64;
+    static final int COL_BLOCK = 256;
+    static final int DEPTH_BLOCK = 128;
+
+    private static final MatrixMultiply COMMON = new MatrixMultiply(ForkJoinPool.commonPool());
+
+    private final ForkJoinPool pool;
+    private final MatrixKernel kernel;
+    private final int rowBlock;
+    private final int colBlock;
+    private final int depthBlock;
+
+    // Uses the vector kernel when the Vector API is available
+    public MatrixMultiply(ForkJoinPool pool) {
+        this(pool, MatrixKernel.best(), ROW_BLOCK, COL_BLOCK, DEPTH_BLOCK);
+    }
+
+    public MatrixMultiply(ForkJoinPool pool, MatrixKernel kernel, int rowBlock, int colBlock, int depthBlock) {
+        if (rowBlock < 1 || colBlock < 1 || depthBlock < 1) {
+            throw new IllegalArgumentException("blocks must be positive: "
+                    + rowBlock + " x " + colBlock + " x " + depthBlock);
+        }
+        this.pool = pool;
+        this.kernel = kernel;
+        this.rowBlock = rowBlock;
+        this.colBlock = colBlock;
+        this.depthBlock = depthBlock;
+    }
+
+    public static MatrixMultiply common() {
+        return COMMON;
+    }
+
+    public Matrix multiply(Matrix a, Matrix b) {
+        Matrix c = new Matrix(a.rows, b.cols);
+        multiplyAdd(a, b, c);
+        return c;
+    }
+
+    public void multiplyAdd(Matrix a, Matrix b, Matrix c) {
+        if (a.cols != b.rows || c.rows != a.rows || c.cols != b.cols) {
+            throw new IllegalArgumentException("cannot add " + a.rows + " x " + a.cols + " times "
+                    + b.rows + " x " + b.cols + " to " + c.rows + " x " + c.cols);
+        }
+        if (c.data == a.data || c.data == b.data) {
+            // Tiles would read inputs that other tiles are already overwriting
+            throw new IllegalArgumentException("the result must not share storage with an input");
+        }
+        int m = a.rows;
+        int n = b.cols;
+        int k = a.cols;
+        if (m == 0 || n == 0 || k == 0) {
+            return;
+        }
+        int rowTiles = (m + rowBlock - 1) / rowBlock;
+        int colTiles = (n + colBlock - 1) / colBlock;
+        Chunks.each(rowTiles * colTiles).forEach(pool, tile -> {
+            int i0 = tile / colTiles * rowBlock;
+            int j0 = tile % colTiles * colBlock;
+            int rows = Math.min(rowBlock, m - i0);
+            int cols = Math.min(colBlock, n - j0);
+            for (int p0 = 0; p0 < k; p0 += depthBlock) {
+                kernel.multiplyAdd(a.data, i0 * k + p0, k,
+                        b.data, p0 * n + j0, n,
+                        c.data, i0 * n + j0, n,
+                        rows, cols, Math.min(depthBlock, k - p0));
+            }
+        });
+    }
+
+    public MatrixKernel getKernel() {
+        return kernel;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+}
@@ -0,0 +1,100 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// GFLOP/s of MatrixMultiply for the scalar and vector kernels on pools of
+// 1, 2, 4, ... threads up to the number of cores, next to a naive triple
+// loop and an untiled scalar run. Every result is checked against the
+// naive loop.
+// Run: java --add-modules jdk.incubator.vector MatrixMultiplyBenchmark [size=1024] [runs=3]
+// (without --add-modules only the scalar kernel is measured)
+public class MatrixMultiplyBenchmark {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int cores = Runtime.getRuntime().availableProcessors();
+        Matrix a = Matrix.random(size, size, 1);
+        Matrix b = Matrix.random(size, size, 2);
+        double flops = 2.0 * size * size * size;
+
+        List<MatrixKernel> kernels = new ArrayList<>();
+        kernels.add(MatrixKernel.scalar());
+        try {
+            kernels.add(MatrixKernel.vector());
+        } catch (UnsupportedOperationException e) {
+            System.out.println("vector kernel unavailable: " + e.getCause());
+        }
+
+        System.out.println("===== MatrixMultiply (" + size + " x " + size + ", " + cores
+                + " cores, best of " + runs + ") =====");
+        System.out.printf("%-26s %8s %10s %10s %14s %10s%n",
+                "kernel", "threads", "ms", "GFLOP/s", "GFLOP/s/thread", "speedup");
+
+        long start = System.nanoTime();
+        Matrix expected = naive(a, b);
+        double naiveMs = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%-26s %8d %10.1f %10.2f %14.2f %10s%n",
+                "naive i-j-p loop", 1, naiveMs, flops / naiveMs / 1e6, flops / naiveMs / 1e6, "-");
+
+        ForkJoinPool single = new ForkJoinPool(1);
+        MatrixMultiply untiled = new MatrixMultiply(single, MatrixKernel.scalar(), size, size, size);
+        double untiledMs = best(untiled, a, b, expected, runs);
+        System.out.printf("%-26s %8d %10.1f %10.2f %14.2f %10s%n",
+                "scalar, untiled", 1, untiledMs, flops / untiledMs / 1e6, flops / untiledMs / 1e6, "-");
+        single.shutdown();
+
+        for (MatrixKernel kernel : kernels) {
+            double oneThreadMs = 0;
+            for (int threads = 1; ; threads = Math.min(cores, threads * 2)) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                MatrixMultiply engine = new MatrixMultiply(pool, kernel,
+                        MatrixMultiply.ROW_BLOCK, MatrixMultiply.COL_BLOCK, MatrixMultiply.DEPTH_BLOCK);
+                double ms = best(engine, a, b, expected, runs);
+                pool.shutdown();
+                if (threads == 1) {
+                    oneThreadMs = ms;
+                }
+                double gflops = flops / ms / 1e6;
+                System.out.printf("%-26s %8d %10.1f %10.2f %14.2f %9.2fx%n",
+                        kernel, threads, ms, gflops, gflops / threads, oneThreadMs / ms);
+                if (threads == cores) {
+                    break;
+                }
+            }
+        }
+    }
+
+    // Dot product of a row of a and a column of b per element; walks b by column
+    private static Matrix naive(Matrix a, Matrix b) {
+        Matrix c = new Matrix(a.rows, b.cols);
+        for (int i = 0; i < a.rows; i++) {
+            for (int j = 0; j < b.cols; j++) {
+                double sum = 0;
+                for (int p = 0; p < a.cols; p++) {
+                    sum += a.data[i * a.cols + p] * b.data[p * b.cols + j];
+                }
+                c.data[i * c.cols + j] = sum;
+            }
+        }
+        return c;
+    }
+
+    // Warm-up runs, the first one checked, then the fastest of the measured runs
+    private static double best(MatrixMultiply engine, Matrix a, Matrix b, Matrix expected, int runs) {
+        double error = engine.multiply(a, b).maxAbsDifference(expected);
+        if (error > 1e-9 * a.cols) {
+            throw new IllegalStateException(engine.getKernel() + ": result off by " + error);
+        }
+        for (int i = 1; i < Math.min(runs, 3); i++) {
+            engine.multiply(a, b);
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            engine.multiply(a, b);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+}
@@ -0,0 +1,347 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+
+// Data-parallel map / reduce / filter / forEach over primitive arrays on a
+// ForkJoinPool. Only primitive functional interfaces are used, so no
+// element is ever boxed.
+//
+// Every operation first runs a small prefix of the array sequentially and
+// times it; Chunks turns that per-element cost and the pool's parallelism
+// into a leaf size. Cheap lambdas on small arrays therefore never fork,
+// while expensive ones are split finely enough to keep every core busy.
+public class ParallelArrays {
+    private static final ParallelArrays COMMON = new ParallelArrays(ForkJoinPool.commonPool());
+
+    private final ForkJoinPool pool;
+
+    public ParallelArrays(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public static ParallelArrays common() {
+        return COMMON;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    Chunks plan(int start, int end, long sampleNanos) {
+        return Chunks.plan(start, end, start, sampleNanos, pool.getParallelism());
+    }
+
+    ForkJoinPool pool() {
+        return pool;
+    }
+
+    private static void checkSameLength(int source, int target) {
+        if (source != target) {
+            throw new IllegalArgumentException("length mismatch: " + source + " vs " + target);
+        }
+    }
+
+    // ---- int[] ----
+
+    public int[] map(int[] source, IntUnaryOperator mapper) {
+        int[] target = new int[source.length];
+        map(source, target, mapper);
+        return target;
+    }
+
+    // target may be source, to map in place
+    public void map(int[] source, int[] target, IntUnaryOperator mapper) {
+        checkSameLength(source.length, target.length);
+        int sample = Chunks.sampleSize(source.length);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < sample; i++) {
+            target[i] = mapper.applyAsInt(source[i]);
+        }
+        Chunks chunks = plan(sample, source.length, System.nanoTime() - t0);
+        chunks.forEach(pool, c -> {
+            for (int i = chunks.from(c), end = chunks.to(c); i < end; i++) {
+                target[i] = mapper.applyAsInt(source[i]);
+            }
+        });
+    }
+
+    // op must be associative; partial results are combined in index order
+    public int reduce(int[] values, int identity, IntBinaryOperator op) {
+        int sample = Chunks.sampleSize(values.length);
+        long t0 = System.nanoTime();
+        int head = identity;
+        for (int i = 0; i < sample; i++) {
+            head = op.applyAsInt(head, values[i]);
+        }
+        Chunks chunks = plan(sample, values.length, System.nanoTime() - t0);
+        int[] partials = new int[chunks.count];
+        chunks.forEach(pool, c -> {
+            int acc = identity;
+            for (int i = chunks.from(c), end = chunks.to(c); i < end; i++) {
+                acc = op.applyAsInt(acc, values[i]);
+            }
+            partials[c] = acc;
+        });
+        int result = head;
+        for (int partial : partials) {
+            result = op.applyAsInt(result, partial);
+        }
+        return result;
+    }
+
+    // Keeps the order of the matching elements
+    public int[] filter(int[] values, IntPredicate predicate) {
+        int sample = Chunks.sampleSize(values.length);
+        int[] packed = new int[values.length];
+        long t0 = System.nanoTime();
+        int headCount = 0;
+        for (int i = 0; i < sample; i++) {
+            if (predicate.test(values[i])) {
+                packed[headCount++] = values[i];
+            }
+        }
+        Chunks chunks = plan(sample, values.length, System.nanoTime() - t0);
+        // Each chunk packs its matches at the front of its own range of 'packed'
+        int[] counts = new int[chunks.count];
+        chunks.forEach(pool, c -> {
+            int out = chunks.from(c);
+            for (int i = out, end = chunks.to(c); i < end; i++) {
+                if (predicate.test(values[i])) {
+                    packed[out++] = values[i];
+                }
+            }
+            counts[c] = out - chunks.from(c);
+        });
+        int[] offsets = new int[chunks.count];
+        int total = headCount;
+        for (int c = 0; c < chunks.count; c++) {
+            offsets[c] = total;
+            total += counts[c];
+        }
+        int[] result = new int[total];
+        System.arraycopy(packed, 0, result, 0, headCount);
+        chunks.forEach(pool, c -> System.arraycopy(packed, chunks.from(c), result, offsets[c], counts[c]));
+        return result;
+    }
+
+    // The action runs concurrently on different elements and must be thread-safe
+    public void forEach(int[] values, IntConsumer action) {
+        int sample = Chunks.sampleSize(values.length);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < sample; i++) {
+            action.accept(values[i]);
+        }
+        Chunks chunks = plan(sample, values.length, System.nanoTime() - t0);
+        chunks.forEach(pool, c -> {
+            for (int i = chunks.from(c), end = chunks.to(c); i < end; i++) {
+                action.accept(values[i]);
+            }
+        });
+    }
+
+    // ---- long[] ----
+
+    public long[] map(long[] source, LongUnaryOperator mapper) {
+        long[] target = new long[source.length];
+        map(source, target, mapper);
+        return target;
+    }
+
+    // target may be source, to map in place
+    public void map(long[] source, long[] target, LongUnaryOperator mapper) {
+        checkSameLength(source.length, target.length);
+        int sample = Chunks.sampleSize(source.length);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < sample; i++) {
+            target[i] = mapper.applyAsLong(source[i]);
+        }
+        Chunks chunks = plan(sample, source.length, System.nanoTime() - t0);
+        chunks.forEach(pool, c -> {
+            for (int i = chunks.from(c), end = chunks.to(c); i < end; i++) {
+                target[i] = mapper.applyAsLong(source[i]);
+            }
+        });
+    }
+
+    // op must be associative; partial results are combined in index order
+    public long reduce(long[] values, long identity, LongBinaryOperator op) {
+        int sample = Chunks.sampleSize(values.length);
+        long t0 = System.nanoTime();
+        long head = identity;
+        for (int i = 0; i < sample; i++) {
+            head = op.applyAsLong(head, values[i]);
+        }
+        Chunks chunks = plan(sample, values.length, System.nanoTime() - t0);
+        long[] partials = new long[chunks.count];
+        chunks.forEach(pool, c -> {
+            long acc = identity;
+            for (int i = chunks.from(c), end = chunks.to(c); i < end; i++) {
+                acc = op.applyAsLong(acc, values[i]);
+            }
+            partials[c] = acc;
+        });
+        long result = head;
+        for (long partial : partials) {
+            result = op.applyAsLong(result, partial);
+        }
+        return result;
+    }
+
+    // Keeps the order of the matching elements
+    public long[] filter(long[] values, LongPredicate predicate) {
+        int sample = Chunks.sampleSize(values.length);
+        long[] packed = new long[values.length];
+        long t0 = System.nanoTime();
+        int headCount = 0;
+        for (int i = 0; i < sample; i++) {
+            if (predicate.test(values[i])) {
+                packed[headCount++] = values[i];
+            }
+        }
+        Chunks chunks = plan(sample, values.length, System.nanoTime() - t0);
+        // Each chunk packs its matches at the front of its own range of 'packed'
+        int[] counts = new int[chunks.count];
+        chunks.forEach(pool, c -> {
+            int out = chunks.from(c);
+            for (int i = out, end = chunks.to(c); i < end; i++) {
+                if (predicate.test(values[i])) {
+                    packed[out++] = values[i];
+                }
+            }
+            counts[c] = out - chunks.from(c);
+        });
+        int[] offsets = new int[chunks.count];
+        int total = headCount;
+        for (int c = 0; c < chunks.count; c++) {
+            offsets[c] = total;
+            total += counts[c];
+        }
+        long[] result = new long[total];
+        System.arraycopy(packed, 0, result, 0, headCount);
+        chunks.forEach(pool, c -> System.arraycopy(packed, chunks.from(c), result, offsets[c], counts[c]));
+        return result;
+    }
+
+    // The action runs concurrently on different elements and must be thread-safe
+    public void forEach(long[] values, LongConsumer action) {
+        int sample = Chunks.sampleSize(values.length);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < sample; i++) {
+            action.accept(values[i]);
+        }
+        Chunks chunks = plan(sample, values.length, System.nanoTime() - t0);
+        chunks.forEach(pool, c -> {
+            for (int i = chunks.from(c), end = chunks.to(c); i < end; i++) {
+                action.accept(values[i]);
+            }
+        });
+    }
+
+    // ---- double[] ----
+
+    public double[] map(double[] source, DoubleUnaryOperator mapper) {
+        double[] target = new double[source.length];
+        map(source, target, mapper);
+        return target;
+    }
+
+    // target may be source, to map in place
+    public void map(double[] source, double[] target, DoubleUnaryOperator mapper) {
+        checkSameLength(source.length, target.length);
+        int sample = Chunks.sampleSize(source.length);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < sample; i++) {
+            target[i] = mapper.applyAsDouble(source[i]);
+        }
+        Chunks chunks = plan(sample, source.length, System.nanoTime() - t0);
+        chunks.forEach(pool, c -> {
+            for (int i = chunks.from(c), end = chunks.to(c); i < end; i++) {
+                target[i] = mapper.applyAsDouble(source[i]);
+            }
+        });
+    }
+
+    // op must be associative; partial results are combined in index order
+    public double reduce(double[] values, double identity, DoubleBinaryOperator op) {
+        int sample = Chunks.sampleSize(values.length);
+        long t0 = System.nanoTime();
+        double head = identity;
+        for (int i = 0; i < sample; i++) {
+            head = op.applyAsDouble(head, values[i]);
+        }
+        Chunks chunks = plan(sample, values.length, System.nanoTime() - t0);
+        double[] partials = new double[chunks.count];
+        chunks.forEach(pool, c -> {
+            double acc = identity;
+            for (int i = chunks.from(c), end = chunks.to(c); i < end; i++) {
+                acc = op.applyAsDouble(acc, values[i]);
+            }
+            partials[c] = acc;
+        });
+        double result = head;
+        for (double partial : partials) {
+            result = op.applyAsDouble(result, partial);
+        }
+        return result;
+    }
+
+    // Keeps the order of the matching elements
+    public double[] filter(double[] values, DoublePredicate predicate) {
+        int sample = Chunks.sampleSize(values.length);
+        double[] packed = new double[values.length];
+        long t0 = System.nanoTime();
+        int headCount = 0;
+        for (int i = 0; i < sample; i++) {
+            if (predicate.test(values[i])) {
+                packed[headCount++] = values[i];
+            }
+        }
+        Chunks chunks = plan(sample, values.length, System.nanoTime() - t0);
+        // Each chunk packs its matches at the front of its own range of 'packed'
+        int[] counts = new int[chunks.count];
+        chunks.forEach(pool, c -> {
+            int out = chunks.from(c);
+            for (int i = out, end = chunks.to(c); i < end; i++) {
+                if (predicate.test(values[i])) {
+                    packed[out++] = values[i];
+                }
+            }
+            counts[c] = out - chunks.from(c);
+        });
+        int[] offsets = new int[chunks.count];
+        int total = headCount;
+        for (int c = 0; c < chunks.count; c++) {
+            offsets[c] = total;
+            total += counts[c];
+        }
+        double[] result = new double[total];
+        System.arraycopy(packed, 0, result, 0, headCount);
+        chunks.forEach(pool, c -> System.arraycopy(packed, chunks.from(c), result, offsets[c], counts[c]));
+        return result;
+    }
+
+    // The action runs concurrently on different elements and must be thread-safe
+    public void forEach(double[] values, DoubleConsumer action) {
+        int sample = Chunks.sampleSize(values.length);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < sample; i++) {
+            action.accept(values[i]);
+        }
+        Chunks chunks = plan(sample, values.length, System.nanoTime() - t0);
+        chunks.forEach(pool, c -> {
+            for (int i = chunks.from(c), end = chunks.to(c); i < end; i++) {
+                action.accept(values[i]);
+            }
+        });
+    }
+}
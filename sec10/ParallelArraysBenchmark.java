@@ -0,0 +1,142 @@
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongSupplier;
+
+// Speedup of ParallelArrays over a plain sequential loop and over
+// Arrays.stream(..).parallel() for cheap and expensive per-element work,
+// and for an array too small to be worth splitting.
+// Run: java ParallelArraysBenchmark [size=10000000] [runs=5]
+public class ParallelArraysBenchmark {
+    private static volatile long blackhole;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        ParallelArrays engine = ParallelArrays.common();
+        int[] ints = new int[size];
+        long[] longs = new long[size];
+        double[] doubles = new double[size];
+        for (int i = 0; i < size; i++) {
+            ints[i] = i * 7919;
+            longs[i] = i;
+            doubles[i] = i * 0.001;
+        }
+        long[] small = Arrays.copyOf(longs, 1_000);
+
+        System.out.println("===== ParallelArrays (" + size + " elements, parallelism "
+                + engine.getParallelism() + ", best of " + runs + ") =====");
+        System.out.printf("%-24s %12s %12s %12s %10s %10s%n",
+                "workload", "loop ms", "stream ms", "engine ms", "vs loop", "vs stream");
+
+        IntUnaryOperator cheap = x -> x * 31 + 7;
+        DoubleUnaryOperator sinCos = x -> Math.sin(x) * Math.cos(x);
+        IntPredicate even = x -> (x & 1) == 0;
+
+        // The timed runs only look at the last element or the length, so the
+        // whole output is checked against the loop's once, up front
+        int[] expectedInts = cheapMap(ints);
+        verify("int map (cheap)",
+                Arrays.equals(expectedInts, Arrays.stream(ints).parallel().map(cheap).toArray())
+                && Arrays.equals(expectedInts, engine.map(ints, cheap)));
+        double[] expectedDoubles = sinCosMap(doubles);
+        verify("double map (sin*cos)",
+                Arrays.equals(expectedDoubles, Arrays.stream(doubles).parallel().map(sinCos).toArray())
+                && Arrays.equals(expectedDoubles, engine.map(doubles, sinCos)));
+        int[] expectedEvens = evens(ints);
+        verify("int filter (even)",
+                Arrays.equals(expectedEvens, Arrays.stream(ints).parallel().filter(even).toArray())
+                && Arrays.equals(expectedEvens, engine.filter(ints, even)));
+
+        compare("int map (cheap)", runs, () -> cheapMap(ints)[size - 1],
+                () -> Arrays.stream(ints).parallel().map(cheap).toArray()[size - 1],
+                () -> engine.map(ints, cheap)[size - 1]);
+
+        compare("double map (sin*cos)", runs,
+                () -> Double.doubleToLongBits(sinCosMap(doubles)[size - 1]),
+                () -> Double.doubleToLongBits(Arrays.stream(doubles).parallel().map(sinCos).toArray()[size - 1]),
+                () -> Double.doubleToLongBits(engine.map(doubles, sinCos)[size - 1]));
+
+        compare("long sum", runs, () -> {
+            long sum = 0;
+            for (long v : longs) {
+                sum += v;
+            }
+            return sum;
+        }, () -> Arrays.stream(longs).parallel().sum(), () -> engine.reduce(longs, 0, Long::sum));
+
+        compare("int filter (even)", runs, () -> evens(ints).length,
+                () -> Arrays.stream(ints).parallel().filter(even).toArray().length,
+                () -> engine.filter(ints, even).length);
+
+        compare("long sum, 1000 elements", runs * 1000, () -> {
+            long sum = 0;
+            for (long v : small) {
+                sum += v;
+            }
+            return sum;
+        }, () -> Arrays.stream(small).parallel().sum(), () -> engine.reduce(small, 0, Long::sum));
+    }
+
+    // The sequential baselines, written as plain loops
+
+    private static int[] cheapMap(int[] ints) {
+        int[] out = new int[ints.length];
+        for (int i = 0; i < ints.length; i++) {
+            out[i] = ints[i] * 31 + 7;
+        }
+        return out;
+    }
+
+    private static double[] sinCosMap(double[] doubles) {
+        double[] out = new double[doubles.length];
+        for (int i = 0; i < doubles.length; i++) {
+            out[i] = Math.sin(doubles[i]) * Math.cos(doubles[i]);
+        }
+        return out;
+    }
+
+    private static int[] evens(int[] ints) {
+        int[] out = new int[ints.length];
+        int n = 0;
+        for (int v : ints) {
+            if ((v & 1) == 0) {
+                out[n++] = v;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static void verify(String name, boolean matches) {
+        if (!matches) {
+            throw new IllegalStateException(name + ": results differ");
+        }
+    }
+
+    private static void compare(String name, int runs, LongSupplier loop, LongSupplier stream, LongSupplier engine) {
+        long expected = loop.getAsLong();
+        if (stream.getAsLong() != expected || engine.getAsLong() != expected) {
+            throw new IllegalStateException(name + ": results differ");
+        }
+        double loopMs = best(loop, runs);
+        double streamMs = best(stream, runs);
+        double engineMs = best(engine, runs);
+        System.out.printf("%-24s %12.3f %12.3f %12.3f %9.2fx %9.2fx%n",
+                name, loopMs, streamMs, engineMs, loopMs / engineMs, streamMs / engineMs);
+    }
+
+    // One warm-up pass, then the fastest of the measured runs
+    private static double best(LongSupplier work, int runs) {
+        for (int i = 0; i < Math.min(runs, 3); i++) {
+            blackhole += work.getAsLong();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            blackhole += work.getAsLong();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+}
@@ -0,0 +1,560 @@
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
+
+// In-place prefix scans and segmented reductions over primitive arrays for
+// any associative operator, split the same way as ParallelArrays.
+//
+// A scan makes two passes over the chunks. The first reduces every chunk
+// to its total; the totals, one per chunk, are then scanned sequentially
+// into the value each chunk starts from, and the second pass scans every
+// chunk in place from that value. Each element is read twice and written
+// once, and only the per-chunk totals are allocated.
+//
+// A segmented reduction folds each segment [offsets[s], offsets[s + 1])
+// into one value. Chunks ignore segment boundaries: a chunk writes the
+// segments it holds completely straight into the result and keeps partial
+// values for the segment it starts inside of and the one it ends inside
+// of. The partials are combined afterwards in chunk order.
+public class ParallelScan {
+    private static final ParallelScan COMMON = new ParallelScan(ParallelArrays.common());
+
+    private final ParallelArrays engine;
+
+    public ParallelScan(ParallelArrays engine) {
+        this.engine = engine;
+    }
+
+    public static ParallelScan common() {
+        return COMMON;
+    }
+
+    public int getParallelism() {
+        return engine.getParallelism();
+    }
+
+    // Offsets must start at 0 or later, never decrease and end within the array
+    private static void checkOffsets(int[] offsets, int length) {
+        if (offsets.length == 0) {
+            throw new IllegalArgumentException("offsets must hold at least one entry");
+        }
+        if (offsets[0] < 0 || offsets[offsets.length - 1] > length) {
+            throw new IllegalArgumentException("offsets outside [0, " + length + "]: "
+                    + offsets[0] + ".." + offsets[offsets.length - 1]);
+        }
+        for (int s = 1; s < offsets.length; s++) {
+            if (offsets[s] < offsets[s - 1]) {
+                throw new IllegalArgumentException("offsets decrease at " + s + ": "
+                        + offsets[s - 1] + " > " + offsets[s]);
+            }
+        }
+    }
+
+    // The last segment starting at or before index; past any empty segments
+    // this is the one that holds the element
+    private static int segmentAt(int[] offsets, int index) {
+        int lo = 0;
+        int hi = offsets.length - 2;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (offsets[mid] <= index) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    // Which segments the partial values of each chunk belong to; -1 if none.
+    // The head segment started before the chunk, the tail segment goes on after it.
+    private static final class Partials {
+        final int[] headSegment;
+        final int[] tailSegment;
+
+        Partials(int chunks) {
+            headSegment = new int[chunks];
+            tailSegment = new int[chunks];
+            Arrays.fill(headSegment, -1);
+            Arrays.fill(tailSegment, -1);
+        }
+    }
+
+    // ---- int[] ----
+
+    // values[i] becomes values[0] op ... op values[i]
+    public void inclusiveScan(int[] values, IntBinaryOperator op) {
+        int sample = Chunks.sampleSize(values.length);
+        long t0 = System.nanoTime();
+        for (int i = 1; i < sample; i++) {
+            values[i] = op.applyAsInt(values[i - 1], values[i]);
+        }
+        Chunks chunks = engine.plan(sample, values.length, System.nanoTime() - t0);
+        if (chunks.count == 0) {
+            return;
+        }
+        if (chunks.count == 1) {
+            // Nothing to run in parallel, so one pass is enough
+            for (int i = sample; i < values.length; i++) {
+                values[i] = op.applyAsInt(values[i - 1], values[i]);
+            }
+            return;
+        }
+        int[] carries = new int[chunks.count];
+        chunks.forEach(engine.pool(), c -> {
+            int from = chunks.from(c);
+            int acc = values[from];
+            for (int i = from + 1, end = chunks.to(c); i < end; i++) {
+                acc = op.applyAsInt(acc, values[i]);
+            }
+            carries[c] = acc;
+        });
+        int running = values[sample - 1];
+        for (int c = 0; c < chunks.count; c++) {
+            int total = carries[c];
+            carries[c] = running;
+            running = op.applyAsInt(running, total);
+        }
+        chunks.forEach(engine.pool(), c -> {
+            int acc = carries[c];
+            for (int i = chunks.from(c), end = chunks.to(c); i < end; i++) {
+                acc = op.applyAsInt(acc, values[i]);
+                values[i] = acc;
+            }
+        });
+    }
+
+    // values[i] becomes identity op values[0] op ... op values[i - 1];
+    // returns the reduction of the whole array
+    public int exclusiveScan(int[] values, int identity, IntBinaryOperator op) {
+        int sample = Chunks.sampleSize(values.length);
+        long t0 = System.nanoTime();
+        int running = identity;
+        for (int i = 0; i < sample; i++) {
+            int value = values[i];
+            values[i] = running;
+            running = op.applyAsInt(running, value);
+        }
+        Chunks chunks = engine.plan(sample, values.length, System.nanoTime() - t0);
+        if (chunks.count == 1) {
+            for (int i = sample; i < values.length; i++) {
+                int value = values[i];
+                values[i] = running;
+                running = op.applyAsInt(running, value);
+            }
+            return running;
+        }
+        int[] carries = new int[chunks.count];
+        chunks.forEach(engine.pool(), c -> {
+            int acc = identity;
+            for (int i = chunks.from(c), end = chunks.to(c); i < end; i++) {
+                acc = op.applyAsInt(acc, values[i]);
+            }
+            carries[c] = acc;
+        });
+        for (int c = 0; c < chunks.count; c++) {
+            int total = carries[c];
+            carries[c] = running;
+            running = op.applyAsInt(running, total);
+        }
+        chunks.forEach(engine.pool(), c -> {
+            int acc = carries[c];
+            for (int i = chunks.from(c), end = chunks.to(c); i < end; i++) {
+                int value = values[i];
+                values[i] = acc;
+                acc = op.applyAsInt(acc, value);
+            }
+        });
+        return running;
+    }
+
+    // One result per segment, offsets.length - 1 in all; segment s covers
+    // values[offsets[s]] .. values[offsets[s + 1] - 1]. Empty segments
+    // reduce to identity.
+    public int[] segmentedReduce(int[] values, int[] offsets, int identity, IntBinaryOperator op) {
+        checkOffsets(offsets, values.length);
+        int first = offsets[0];
+        int last = offsets[offsets.length - 1];
+        int[] results = new int[offsets.length - 1];
+        Arrays.fill(results, identity);
+        int sample = Chunks.sampleSize(last - first);
+        long t0 = System.nanoTime();
+        if (sample > 0) {
+            // The sampled prefix is the first chunk, so its partials can be combined right away
+            Partials partials = new Partials(1);
+            int[] heads = new int[1];
+            int[] tails = new int[1];
+            reduceSegments(values, offsets, first, first + sample, identity, op, results, partials, heads, tails, 0);
+            combinePartials(results, partials, heads, tails, op);
+        }
+        Chunks chunks = Chunks.plan(first + sample, last, sample, System.nanoTime() - t0, engine.getParallelism());
+        Partials partials = new Partials(chunks.count);
+        int[] heads = new int[chunks.count];
+        int[] tails = new int[chunks.count];
+        chunks.forEach(engine.pool(), c -> reduceSegments(values, offsets, chunks.from(c), chunks.to(c),
+                identity, op, results, partials, heads, tails, c));
+        combinePartials(results, partials, heads, tails, op);
+        return results;
+    }
+
+    private static void reduceSegments(int[] values, int[] offsets, int from, int to, int identity,
+                                       IntBinaryOperator op, int[] results, Partials partials,
+                                       int[] heads, int[] tails, int chunk) {
+        int s = segmentAt(offsets, from);
+        int i = from;
+        while (i < to) {
+            int end = Math.min(offsets[s + 1], to);
+            int acc = identity;
+            for (; i < end; i++) {
+                acc = op.applyAsInt(acc, values[i]);
+            }
+            if (offsets[s] < from) {
+                partials.headSegment[chunk] = s;
+                heads[chunk] = acc;
+            } else if (offsets[s + 1] > to) {
+                partials.tailSegment[chunk] = s;
+                tails[chunk] = acc;
+            } else {
+                results[s] = acc;
+            }
+            while (s < offsets.length - 2 && offsets[s + 1] <= i) {
+                s++;
+            }
+        }
+    }
+
+    // In chunk order: a head partial continues what earlier chunks left in
+    // results, a tail partial starts its segment
+    private static void combinePartials(int[] results, Partials partials, int[] heads, int[] tails,
+                                        IntBinaryOperator op) {
+        for (int c = 0; c < heads.length; c++) {
+            int head = partials.headSegment[c];
+            if (head >= 0) {
+                results[head] = op.applyAsInt(results[head], heads[c]);
+            }
+            int tail = partials.tailSegment[c];
+            if (tail >= 0) {
+                results[tail] = tails[c];
+            }
+        }
+    }
+
+    // ---- long[] ----
+
+    // values[i] becomes values[0] op ... op values[i]
+    public void inclusiveScan(long[] values, LongBinaryOperator op) {
+        int sample = Chunks.sampleSize(values.length);
+        long t0 = System.nanoTime();
+        for (int i = 1; i < sample; i++) {
+            values[i] = op.applyAsLong(values[i - 1], values[i]);
+        }
+        Chunks chunks = engine.plan(sample, values.length, System.nanoTime() - t0);
+        if (chunks.count == 0) {
+            return;
+        }
+        if (chunks.count == 1) {
+            // Nothing to run in parallel, so one pass is enough
+            for (int i = sample; i < values.length; i++) {
+                values[i] = op.applyAsLong(values[i - 1], values[i]);
+            }
+            return;
+        }
+        long[] carries = new long[chunks.count];
+        chunks.forEach(engine.pool(), c -> {
+            int from = chunks.from(c);
+            long acc = values[from];
+            for (int i = from + 1, end = chunks.to(c); i < end; i++) {
+                acc = op.applyAsLong(acc, values[i]);
+            }
+            carries[c] = acc;
+        });
+        long running = values[sample - 1];
+        for (int c = 0; c < chunks.count; c++) {
+            long total = carries[c];
+            carries[c] = running;
+            running = op.applyAsLong(running, total);
+        }
+        chunks.forEach(engine.pool(), c -> {
+            long acc = carries[c];
+            for (int i = chunks.from(c), end = chunks.to(c); i < end; i++) {
+                acc = op.applyAsLong(acc, values[i]);
+                values[i] = acc;
+            }
+        });
+    }
+
+    // values[i] becomes identity op values[0] op ... op values[i - 1];
+    // returns the reduction of the whole array
+    public long exclusiveScan(long[] values, long identity, LongBinaryOperator op) {
+        int sample = Chunks.sampleSize(values.length);
+        long t0 = System.nanoTime();
+        long running = identity;
+        for (int i = 0; i < sample; i++) {
+            long value = values[i];
+            values[i] = running;
+            running = op.applyAsLong(running, value);
+        }
+        Chunks chunks = engine.plan(sample, values.length, System.nanoTime() - t0);
+        if (chunks.count == 1) {
+            for (int i = sample; i < values.length; i++) {
+                long value = values[i];
+                values[i] = running;
+                running = op.applyAsLong(running, value);
+            }
+            return running;
+        }
+        long[] carries = new long[chunks.count];
+        chunks.forEach(engine.pool(), c -> {
+            long acc = identity;
+            for (int i = chunks.from(c), end = chunks.to(c); i < end; i++) {
+                acc = op.applyAsLong(acc, values[i]);
+            }
+            carries[c] = acc;
+        });
+        for (int c = 0; c < chunks.count; c++) {
+            long total = carries[c];
+            carries[c] = running;
+            running = op.applyAsLong(running, total);
+        }
+        chunks.forEach(engine.pool(), c -> {
+            long acc = carries[c];
+            for (int i = chunks.from(c), end = chunks.to(c); i < end; i++) {
+                long value = values[i];
+                values[i] = acc;
+                acc = op.applyAsLong(acc, value);
+            }
+        });
+        return running;
+    }
+
+    // One result per segment, offsets.length - 1 in all; segment s covers
+    // values[offsets[s]] .. values[offsets[s + 1] - 1]. Empty segments
+    // reduce to identity.
+    public long[] segmentedReduce(long[] values, int[] offsets, long identity, LongBinaryOperator op) {
+        checkOffsets(offsets, values.length);
+        int first = offsets[0];
+        int last = offsets[offsets.length - 1];
+        long[] results = new long[offsets.length - 1];
+        Arrays.fill(results, identity);
+        int sample = Chunks.sampleSize(last - first);
+        long t0 = System.nanoTime();
+        if (sample > 0) {
+            // The sampled prefix is the first chunk, so its partials can be combined right away
+            Partials partials = new Partials(1);
+            long[] heads = new long[1];
+            long[] tails = new long[1];
+            reduceSegments(values, offsets, first, first + sample, identity, op, results, partials, heads, tails, 0);
+            combinePartials(results, partials, heads, tails, op);
+        }
+        Chunks chunks = Chunks.plan(first + sample, last, sample, System.nanoTime() - t0, engine.getParallelism());
+        Partials partials = new Partials(chunks.count);
+        long[] heads = new long[chunks.count];
+        long[] tails = new long[chunks.count];
+        chunks.forEach(engine.pool(), c -> reduceSegments(values, offsets, chunks.from(c), chunks.to(c),
+                identity, op, results, partials, heads, tails, c));
+        combinePartials(results, partials, heads, tails, op);
+        return results;
+    }
+
+    private static void reduceSegments(long[] values, int[] offsets, int from, int to, long identity,
+                                       LongBinaryOperator op, long[] results, Partials partials,
+                                       long[] heads, long[] tails, int chunk) {
+        int s = segmentAt(offsets, from);
+        int i = from;
+        while (i < to) {
+            int end = Math.min(offsets[s + 1], to);
+            long acc = identity;
+            for (; i < end; i++) {
+                acc = op.applyAsLong(acc, values[i]);
+            }
+            if (offsets[s] < from) {
+                partials.headSegment[chunk] = s;
+                heads[chunk] = acc;
+            } else if (offsets[s + 1] > to) {
+                partials.tailSegment[chunk] = s;
+                tails[chunk] = acc;
+            } else {
+                results[s] = acc;
+            }
+            while (s < offsets.length - 2 && offsets[s + 1] <= i) {
+                s++;
+            }
+        }
+    }
+
+    // In chunk order: a head partial continues what earlier chunks left in
+    // results, a tail partial starts its segment
+    private static void combinePartials(long[] results, Partials partials, long[] heads, long[] tails,
+                                        LongBinaryOperator op) {
+        for (int c = 0; c < heads.length; c++) {
+            int head = partials.headSegment[c];
+            if (head >= 0) {
+                results[head] = op.applyAsLong(results[head], heads[c]);
+            }
+            int tail = partials.tailSegment[c];
+            if (tail >= 0) {
+                results[tail] = tails[c];
+            }
+        }
+    }
+
+    // ---- double[] ----
+
+    // values[i] becomes values[0] op ... op values[i]
+    public void inclusiveScan(double[] values, DoubleBinaryOperator op) {
+        int sample = Chunks.sampleSize(values.length);
+        long t0 = System.nanoTime();
+        for (int i = 1; i < sample; i++) {
+            values[i] = op.applyAsDouble(values[i - 1], values[i]);
+        }
+        Chunks chunks = engine.plan(sample, values.length, System.nanoTime() - t0);
+        if (chunks.count == 0) {
+            return;
+        }
+        if (chunks.count == 1) {
+            // Nothing to run in parallel, so one pass is enough
+            for (int i = sample; i < values.length; i++) {
+                values[i] = op.applyAsDouble(values[i - 1], values[i]);
+            }
+            return;
+        }
+        double[] carries = new double[chunks.count];
+        chunks.forEach(engine.pool(), c -> {
+            int from = chunks.from(c);
+            double acc = values[from];
+            for (int i = from + 1, end = chunks.to(c); i < end; i++) {
+                acc = op.applyAsDouble(acc, values[i]);
+            }
+            carries[c] = acc;
+        });
+        double running = values[sample - 1];
+        for (int c = 0; c < chunks.count; c++) {
+            double total = carries[c];
+            carries[c] = running;
+            running = op.applyAsDouble(running, total);
+        }
+        chunks.forEach(engine.pool(), c -> {
+            double acc = carries[c];
+            for (int i = chunks.from(c), end = chunks.to(c); i < end; i++) {
+                acc = op.applyAsDouble(acc, values[i]);
+                values[i] = acc;
+            }
+        });
+    }
+
+    // values[i] becomes identity op values[0] op ... op values[i - 1];
+    // returns the reduction of the whole array
+    public double exclusiveScan(double[] values, double identity, DoubleBinaryOperator op) {
+        int sample = Chunks.sampleSize(values.length);
+        long t0 = System.nanoTime();
+        double running = identity;
+        for (int i = 0; i < sample; i++) {
+            double value = values[i];
+            values[i] = running;
+            running = op.applyAsDouble(running, value);
+        }
+        Chunks chunks = engine.plan(sample, values.length, System.nanoTime() - t0);
+        if (chunks.count == 1) {
+            for (int i = sample; i < values.length; i++) {
+                double value = values[i];
+                values[i] = running;
+                running = op.applyAsDouble(running, value);
+            }
+            return running;
+        }
+        double[] carries = new double[chunks.count];
+        chunks.forEach(engine.pool(), c -> {
+            double acc = identity;
+            for (int i = chunks.from(c), end = chunks.to(c); i < end; i++) {
+                acc = op.applyAsDouble(acc, values[i]);
+            }
+            carries[c] = acc;
+        });
+        for (int c = 0; c < chunks.count; c++) {
+            double total = carries[c];
+            carries[c] = running;
+            running = op.applyAsDouble(running, total);
+        }
+        chunks.forEach(engine.pool(), c -> {
+            double acc = carries[c];
+            for (int i = chunks.from(c), end = chunks.to(c); i < end; i++) {
+                double value = values[i];
+                values[i] = acc;
+                acc = op.applyAsDouble(acc, value);
+            }
+        });
+        return running;
+    }
+
+    // One result per segment, offsets.length - 1 in all; segment s covers
+    // values[offsets[s]] .. values[offsets[s + 1] - 1]. Empty segments
+    // reduce to identity.
+    public double[] segmentedReduce(double[] values, int[] offsets, double identity, DoubleBinaryOperator op) {
+        checkOffsets(offsets, values.length);
+        int first = offsets[0];
+        int last = offsets[offsets.length - 1];
+        double[] results = new double[offsets.length - 1];
+        Arrays.fill(results, identity);
+        int sample = Chunks.sampleSize(last - first);
+        long t0 = System.nanoTime();
+        if (sample > 0) {
+            // The sampled prefix is the first chunk, so its partials can be combined right away
+            Partials partials = new Partials(1);
+            double[] heads = new double[1];
+            double[] tails = new double[1];
+            reduceSegments(values, offsets, first, first + sample, identity, op, results, partials, heads, tails, 0);
+            combinePartials(results, partials, heads, tails, op);
+        }
+        Chunks chunks = Chunks.plan(first + sample, last, sample, System.nanoTime() - t0, engine.getParallelism());
+        Partials partials = new Partials(chunks.count);
+        double[] heads = new double[chunks.count];
+        double[] tails = new double[chunks.count];
+        chunks.forEach(engine.pool(), c -> reduceSegments(values, offsets, chunks.from(c), chunks.to(c),
+                identity, op, results, partials, heads, tails, c));
+        combinePartials(results, partials, heads, tails, op);
+        return results;
+    }
+
+    private static void reduceSegments(double[] values, int[] offsets, int from, int to, double identity,
+                                       DoubleBinaryOperator op, double[] results, Partials partials,
+                                       double[] heads, double[] tails, int chunk) {
+        int s = segmentAt(offsets, from);
+        int i = from;
+        while (i < to) {
+            int end = Math.min(offsets[s + 1], to);
+            double acc = identity;
+            for (; i < end; i++) {
+                acc = op.applyAsDouble(acc, values[i]);
+            }
+            if (offsets[s] < from) {
+                partials.headSegment[chunk] = s;
+                heads[chunk] = acc;
+            } else if (offsets[s + 1] > to) {
+                partials.tailSegment[chunk] = s;
+                tails[chunk] = acc;
+            } else {
+                results[s] = acc;
+            }
+            while (s < offsets.length - 2 && offsets[s + 1] <= i) {
+                s++;
+            }
+        }
+    }
+
+    // In chunk order: a head partial continues what earlier chunks left in
+    // results, a tail partial starts its segment
+    private static void combinePartials(double[] results, Partials partials, double[] heads, double[] tails,
+                                        DoubleBinaryOperator op) {
+        for (int c = 0; c < heads.length; c++) {
+            int head = partials.headSegment[c];
+            if (head >= 0) {
+                results[head] = op.applyAsDouble(results[head], heads[c]);
+            }
+            int tail = partials.tailSegment[c];
+            if (tail >= 0) {
+                results[tail] = tails[c];
+            }
+        }
+    }
+}
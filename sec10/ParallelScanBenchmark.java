@@ -0,0 +1,203 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+// Times ParallelScan's scans and a segmented sum against a sequential loop
+// and Arrays.parallelPrefix on one large long[], then checks it against
+// plain sequential loops on edge-case sizes and segment layouts.
+// Run: java -Xmx4g ParallelScanBenchmark [size=20000000] [runs=5]
+// (size=100000000 needs two 800 MB arrays)
+public class ParallelScanBenchmark {
+    private static volatile long blackhole;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        ParallelScan scan = ParallelScan.common();
+
+        Random random = new Random(42);
+        long[] source = new long[size];
+        for (int i = 0; i < size; i++) {
+            source[i] = random.nextInt(1_000);
+        }
+        long[] values = new long[size];
+        int[] offsets = randomOffsets(random, size, 64);
+
+        System.out.println("===== ParallelScan (" + size + " elements, parallelism "
+                + scan.getParallelism() + ", best of " + runs + ") =====");
+        System.out.printf("%-26s %12s %16s %12s %10s%n",
+                "workload", "loop ms", "parallelPrefix ms", "engine ms", "vs loop");
+
+        compare("long inclusive sum", runs, source, values, () -> {
+            for (int i = 1; i < size; i++) {
+                values[i] += values[i - 1];
+            }
+            return values[size - 1];
+        }, () -> {
+            Arrays.parallelPrefix(values, Long::sum);
+            return values[size - 1];
+        }, () -> {
+            scan.inclusiveScan(values, Long::sum);
+            return values[size - 1];
+        });
+
+        compare("long exclusive max", runs, source, values, () -> {
+            long running = Long.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                long value = values[i];
+                values[i] = running;
+                running = Math.max(running, value);
+            }
+            return running + values[size - 1];
+        }, null, () -> scan.exclusiveScan(values, Long.MIN_VALUE, Math::max) + values[size - 1]);
+
+        compare("long segmented sum (~64)", runs, source, values, () -> {
+            long[] sums = new long[offsets.length - 1];
+            for (int s = 0; s < sums.length; s++) {
+                long sum = 0;
+                for (int i = offsets[s]; i < offsets[s + 1]; i++) {
+                    sum += values[i];
+                }
+                sums[s] = sum;
+            }
+            return checksum(sums);
+        }, null, () -> checksum(scan.segmentedReduce(values, offsets, 0, Long::sum)));
+
+        // Last, because its mix of operators would make the engine's inner
+        // loops megamorphic and slow down the timings above
+        checkCorrectness(scan, size);
+    }
+
+    // Against sequential results for sizes around the sample and chunk
+    // boundaries, with sum (int, long), max (long, double) and empty segments
+    private static void checkCorrectness(ParallelScan scan, int size) {
+        Random random = new Random(7);
+        int[] sizes = {0, 1, 2, 1023, 1024, 1025, 4097, 100_003, 1_000_000, Math.min(size, 5_000_000)};
+        for (int n : sizes) {
+            long[] longs = new long[n];
+            int[] ints = new int[n];
+            double[] doubles = new double[n];
+            for (int i = 0; i < n; i++) {
+                longs[i] = random.nextLong();
+                ints[i] = random.nextInt();
+                doubles[i] = random.nextGaussian();
+            }
+
+            long[] expected = longs.clone();
+            for (int i = 1; i < n; i++) {
+                expected[i] += expected[i - 1];
+            }
+            long[] actual = longs.clone();
+            scan.inclusiveScan(actual, Long::sum);
+            check(Arrays.equals(expected, actual), "long inclusive sum", n);
+
+            int[] expectedInts = new int[n];
+            int running = 0;
+            for (int i = 0; i < n; i++) {
+                expectedInts[i] = running;
+                running += ints[i];
+            }
+            int[] actualInts = ints.clone();
+            int total = scan.exclusiveScan(actualInts, 0, Integer::sum);
+            check(Arrays.equals(expectedInts, actualInts) && total == running, "int exclusive sum", n);
+
+            double[] expectedDoubles = doubles.clone();
+            for (int i = 1; i < n; i++) {
+                expectedDoubles[i] = Math.max(expectedDoubles[i - 1], expectedDoubles[i]);
+            }
+            double[] actualDoubles = doubles.clone();
+            scan.inclusiveScan(actualDoubles, Math::max);
+            check(Arrays.equals(expectedDoubles, actualDoubles), "double inclusive max", n);
+
+            for (int meanLength : new int[] {1, 3, 100, 50_000}) {
+                int[] offsets = randomOffsets(random, n, meanLength);
+                long[] sums = new long[offsets.length - 1];
+                long[] maxima = new long[offsets.length - 1];
+                for (int s = 0; s < sums.length; s++) {
+                    maxima[s] = Long.MIN_VALUE;
+                    for (int i = offsets[s]; i < offsets[s + 1]; i++) {
+                        sums[s] += longs[i];
+                        maxima[s] = Math.max(maxima[s], longs[i]);
+                    }
+                }
+                check(Arrays.equals(sums, scan.segmentedReduce(longs, offsets, 0, Long::sum)),
+                        "long segmented sum, mean length " + meanLength, n);
+                check(Arrays.equals(maxima, scan.segmentedReduce(longs, offsets, Long.MIN_VALUE, Math::max)),
+                        "long segmented max, mean length " + meanLength, n);
+            }
+        }
+        // Offsets need not cover the whole array
+        long[] longs = {5, 1, 2, 3, 4, 9};
+        check(Arrays.equals(new long[] {3, 0, 7}, scan.segmentedReduce(longs, new int[] {1, 3, 3, 5}, 0, Long::sum)),
+                "long segmented sum, inner range", longs.length);
+        System.out.println("correctness: all checks passed");
+    }
+
+    private static void check(boolean passed, String what, int size) {
+        if (!passed) {
+            throw new IllegalStateException(what + " is wrong for " + size + " elements");
+        }
+    }
+
+    // Segment lengths drawn uniformly from [0, 2 * meanLength], so about one
+    // in 2 * meanLength + 1 segments is empty; the last segment is cut at length
+    private static int[] randomOffsets(Random random, int length, int meanLength) {
+        int[] offsets = new int[length / Math.max(1, meanLength) + 2];
+        int count = 1;
+        int at = 0;
+        while (at < length) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            at = (int) Math.min(length, (long) at + random.nextInt(2 * meanLength + 1));
+            offsets[count++] = at;
+        }
+        return Arrays.copyOf(offsets, count);
+    }
+
+    private static long checksum(long[] values) {
+        long sum = 0;
+        for (long v : values) {
+            sum = sum * 31 + v;
+        }
+        return sum;
+    }
+
+    // Every variant works in place on 'values', which is reset from 'source'
+    // before each run and outside the timing
+    private static void compare(String name, int runs, long[] source, long[] values,
+                                LongSupplier loop, LongSupplier parallelPrefix, LongSupplier engine) {
+        System.arraycopy(source, 0, values, 0, source.length);
+        long expected = loop.getAsLong();
+        System.arraycopy(source, 0, values, 0, source.length);
+        if (engine.getAsLong() != expected) {
+            throw new IllegalStateException(name + ": engine result differs");
+        }
+        if (parallelPrefix != null) {
+            System.arraycopy(source, 0, values, 0, source.length);
+            if (parallelPrefix.getAsLong() != expected) {
+                throw new IllegalStateException(name + ": parallelPrefix result differs");
+            }
+        }
+        double loopMs = best(loop, runs, source, values);
+        String prefixMs = parallelPrefix == null ? "-" : String.format("%.3f", best(parallelPrefix, runs, source, values));
+        double engineMs = best(engine, runs, source, values);
+        System.out.printf("%-26s %12.3f %16s %12.3f %9.2fx%n", name, loopMs, prefixMs, engineMs, loopMs / engineMs);
+    }
+
+    // One warm-up pass, then the fastest of the measured runs
+    private static double best(LongSupplier work, int runs, long[] source, long[] values) {
+        for (int i = 0; i < Math.min(runs, 3); i++) {
+            System.arraycopy(source, 0, values, 0, source.length);
+            blackhole += work.getAsLong();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            System.arraycopy(source, 0, values, 0, source.length);
+            long start = System.nanoTime();
+            blackhole += work.getAsLong();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+}
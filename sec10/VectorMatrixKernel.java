@@ -0,0 +1,110 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+// MatrixKernel on the incubating Vector API. The block is computed in
+// register tiles of 4 rows by 2 vectors of c: the 8 accumulators stay in
+// registers for the whole depth, and every step loads 2 vectors of b,
+// broadcasts 4 elements of a and issues 8 fused multiply-adds. Rows and
+// columns that do not fill a tile go to narrower vector loops and finally
+// to the scalar kernel.
+//
+// Loaded only through MatrixKernel.vector(); needs --add-modules
+// jdk.incubator.vector at compile and run time.
+final class VectorMatrixKernel implements MatrixKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    private final MatrixKernel scalar = MatrixKernel.scalar();
+
+    VectorMatrixKernel() {
+        if (LANES < 2) {
+            throw new UnsupportedOperationException("no SIMD registers wider than one double");
+        }
+    }
+
+    @Override
+    public void multiplyAdd(double[] a, int aOffset, int aStride,
+                            double[] b, int bOffset, int bStride,
+                            double[] c, int cOffset, int cStride,
+                            int rows, int cols, int depth) {
+        int i = 0;
+        for (; i + 4 <= rows; i += 4) {
+            int j = 0;
+            for (; j + 2 * LANES <= cols; j += 2 * LANES) {
+                tile4x2(a, aOffset + i * aStride, aStride, b, bOffset + j, bStride,
+                        c, cOffset + i * cStride + j, cStride, depth);
+            }
+            for (int row = i; row < i + 4; row++) {
+                rowTail(a, aOffset + row * aStride, b, bOffset, bStride, c, cOffset + row * cStride, j, cols, depth);
+            }
+        }
+        for (; i < rows; i++) {
+            rowTail(a, aOffset + i * aStride, b, bOffset, bStride, c, cOffset + i * cStride, 0, cols, depth);
+        }
+    }
+
+    private static void tile4x2(double[] a, int a0, int aStride, double[] b, int bOffset, int bStride,
+                                double[] c, int c0, int cStride, int depth) {
+        int a1 = a0 + aStride;
+        int a2 = a1 + aStride;
+        int a3 = a2 + aStride;
+        int c1 = c0 + cStride;
+        int c2 = c1 + cStride;
+        int c3 = c2 + cStride;
+        DoubleVector c00 = DoubleVector.fromArray(SPECIES, c, c0);
+        DoubleVector c01 = DoubleVector.fromArray(SPECIES, c, c0 + LANES);
+        DoubleVector c10 = DoubleVector.fromArray(SPECIES, c, c1);
+        DoubleVector c11 = DoubleVector.fromArray(SPECIES, c, c1 + LANES);
+        DoubleVector c20 = DoubleVector.fromArray(SPECIES, c, c2);
+        DoubleVector c21 = DoubleVector.fromArray(SPECIES, c, c2 + LANES);
+        DoubleVector c30 = DoubleVector.fromArray(SPECIES, c, c3);
+        DoubleVector c31 = DoubleVector.fromArray(SPECIES, c, c3 + LANES);
+        for (int p = 0; p < depth; p++) {
+            int bRow = bOffset + p * bStride;
+            DoubleVector b0 = DoubleVector.fromArray(SPECIES, b, bRow);
+            DoubleVector b1 = DoubleVector.fromArray(SPECIES, b, bRow + LANES);
+            DoubleVector x = DoubleVector.broadcast(SPECIES, a[a0 + p]);
+            c00 = x.fma(b0, c00);
+            c01 = x.fma(b1, c01);
+            x = DoubleVector.broadcast(SPECIES, a[a1 + p]);
+            c10 = x.fma(b0, c10);
+            c11 = x.fma(b1, c11);
+            x = DoubleVector.broadcast(SPECIES, a[a2 + p]);
+            c20 = x.fma(b0, c20);
+            c21 = x.fma(b1, c21);
+            x = DoubleVector.broadcast(SPECIES, a[a3 + p]);
+            c30 = x.fma(b0, c30);
+            c31 = x.fma(b1, c31);
+        }
+        c00.intoArray(c, c0);
+        c01.intoArray(c, c0 + LANES);
+        c10.intoArray(c, c1);
+        c11.intoArray(c, c1 + LANES);
+        c20.intoArray(c, c2);
+        c21.intoArray(c, c2 + LANES);
+        c30.intoArray(c, c3);
+        c31.intoArray(c, c3 + LANES);
+    }
+
+    // Columns [from, cols) of one row: one vector at a time, then scalar
+    private void rowTail(double[] a, int aRow, double[] b, int bOffset, int bStride,
+                         double[] c, int cRow, int from, int cols, int depth) {
+        int j = from;
+        for (; j + LANES <= cols; j += LANES) {
+            DoubleVector acc = DoubleVector.fromArray(SPECIES, c, cRow + j);
+            for (int p = 0; p < depth; p++) {
+                acc = DoubleVector.broadcast(SPECIES, a[aRow + p])
+                        .fma(DoubleVector.fromArray(SPECIES, b, bOffset + p * bStride + j), acc);
+            }
+            acc.intoArray(c, cRow + j);
+        }
+        if (j < cols) {
+            scalar.multiplyAdd(a, aRow, 0, b, bOffset + j, bStride, c, cRow + j, 0, 1, cols - j, depth);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "vector(" + LANES + " x double)";
+    }
+}
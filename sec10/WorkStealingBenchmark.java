@@ -0,0 +1,165 @@
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+// WorkStealingScheduler against ForkJoinPool and a ThreadPoolExecutor on
+// one shared LinkedBlockingQueue (the setup of MultiExecutor), all with the
+// same number of threads, on fine-grained recursive work:
+//  - fib: fork/join recursion with a small sequential cutoff. The
+//    ThreadPoolExecutor is left out; a blocking join on a bounded pool
+//    deadlocks once every worker waits on a queued child.
+//  - tree: every node submits its two children with execute() and leaves
+//    do a little arithmetic; completion is counted in a LongAdder.
+// Run: java WorkStealingBenchmark [threads=cores] [runs=5]
+public class WorkStealingBenchmark {
+    private static final int FIB_N = 32;
+    private static final int FIB_CUTOFF = 12;
+    private static final int TREE_DEPTH = 18;
+    private static final int LEAF_WORK = 200;
+
+    private static volatile long blackhole;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        ForkJoinPool forkJoin = new ForkJoinPool(threads);
+        ExecutorService threadPool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+        WorkStealingScheduler scheduler = new WorkStealingScheduler(threads);
+
+        System.out.println("===== Work stealing (" + threads + " threads, best of " + runs + ") =====");
+        System.out.printf("%-38s %12s %12s %12s%n", "workload", "FJP ms", "TPE ms", "scheduler ms");
+
+        long fib = fibSequential(FIB_N);
+        compare("fib(" + FIB_N + "), cutoff " + FIB_CUTOFF + " (" + fibTasks(FIB_N) + " tasks)", runs, fib,
+                () -> forkJoin.invoke(new ForkJoinFib(FIB_N)),
+                null,
+                () -> scheduler.invoke(new SchedulerFib(FIB_N)));
+
+        long leaves = 1L << TREE_DEPTH;
+        compare("tree depth " + TREE_DEPTH + " (" + (2 * leaves - 1) + " tasks)", runs, leaves,
+                () -> spawnTree(forkJoin),
+                () -> spawnTree(threadPool),
+                () -> spawnTree(scheduler));
+
+        System.out.println("scheduler steals: " + scheduler.getStealCount()
+                + " | FJP steals: " + forkJoin.getStealCount());
+        forkJoin.shutdown();
+        threadPool.shutdown();
+        scheduler.close();
+        threadPool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private static long fibSequential(int n) {
+        return n < 2 ? n : fibSequential(n - 1) + fibSequential(n - 2);
+    }
+
+    private static long fibTasks(int n) {
+        return n <= FIB_CUTOFF ? 1 : 1 + fibTasks(n - 1) + fibTasks(n - 2);
+    }
+
+    private static final class ForkJoinFib extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final int n;
+
+        ForkJoinFib(int n) {
+            this.n = n;
+        }
+
+        @Override
+        protected Long compute() {
+            if (n <= FIB_CUTOFF) {
+                return fibSequential(n);
+            }
+            ForkJoinFib left = new ForkJoinFib(n - 1);
+            left.fork();
+            long right = new ForkJoinFib(n - 2).compute();
+            return left.join() + right;
+        }
+    }
+
+    private static final class SchedulerFib extends WorkStealingScheduler.Task<Long> {
+        private final int n;
+
+        SchedulerFib(int n) {
+            this.n = n;
+        }
+
+        @Override
+        protected Long compute() {
+            if (n <= FIB_CUTOFF) {
+                return fibSequential(n);
+            }
+            SchedulerFib left = new SchedulerFib(n - 1);
+            left.fork();
+            long right = new SchedulerFib(n - 2).compute();
+            return left.join() + right;
+        }
+    }
+
+    // Fire-and-forget binary tree; returns the number of leaves that ran
+    private static long spawnTree(Executor executor) {
+        LongAdder done = new LongAdder();
+        long leaves = 1L << TREE_DEPTH;
+        executor.execute(new TreeNode(executor, TREE_DEPTH, done));
+        while (done.sum() < leaves) {
+            // Parks rather than spins so the caller does not take a core from the workers
+            LockSupport.parkNanos(20_000);
+        }
+        return done.sum();
+    }
+
+    private record TreeNode(Executor executor, int depth, LongAdder done) implements Runnable {
+        @Override
+        public void run() {
+            if (depth == 0) {
+                long x = depth + 1;
+                for (int i = 0; i < LEAF_WORK; i++) {
+                    x ^= x << 13;
+                    x ^= x >>> 7;
+                    x ^= x << 17;
+                }
+                if (x == 0) {
+                    blackhole = x;
+                }
+                done.increment();
+                return;
+            }
+            executor.execute(new TreeNode(executor, depth - 1, done));
+            executor.execute(new TreeNode(executor, depth - 1, done));
+        }
+    }
+
+    private static void compare(String name, int runs, long expected,
+                                LongSupplier forkJoin, LongSupplier threadPool, LongSupplier scheduler) {
+        String forkJoinMs = String.format("%.2f", best(name, forkJoin, expected, runs));
+        String threadPoolMs = threadPool == null ? "-" : String.format("%.2f", best(name, threadPool, expected, runs));
+        String schedulerMs = String.format("%.2f", best(name, scheduler, expected, runs));
+        System.out.printf("%-38s %12s %12s %12s%n", name, forkJoinMs, threadPoolMs, schedulerMs);
+    }
+
+    // Warm-up runs, then the fastest of the measured runs; every run is checked
+    private static double best(String name, LongSupplier work, long expected, int runs) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < Math.min(runs, 3) + runs; i++) {
+            long start = System.nanoTime();
+            long result = work.getAsLong();
+            long elapsed = System.nanoTime() - start;
+            if (result != expected) {
+                throw new IllegalStateException(name + ": expected " + expected + ", got " + result);
+            }
+            if (i >= Math.min(runs, 3)) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        return best / 1e6;
+    }
+}
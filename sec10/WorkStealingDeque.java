@@ -0,0 +1,129 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Chase-Lev work-stealing deque (with the memory orderings of Le et al.,
+// "Correct and Efficient Work-Stealing for Weak Memory Models"). One owner
+// thread pushes and pops at the bottom; any number of thieves steal from
+// the top. The owner's push is a plain store plus a release store of
+// bottom and its pop needs one full fence, with a CAS only when it races a
+// thief for the last element. Thieves always CAS the top.
+//
+// The array grows (by doubling, done by the owner) and never shrinks.
+// Stolen slots are not cleared, since the owner may already be reusing
+// them, so up to one array's worth of finished elements can stay
+// reachable until overwritten.
+public class WorkStealingDeque<T> {
+    private static final VarHandle TOP;
+    private static final VarHandle BOTTOM;
+    private static final VarHandle ARRAY;
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TOP = lookup.findVarHandle(WorkStealingDeque.class, "top", long.class);
+            BOTTOM = lookup.findVarHandle(WorkStealingDeque.class, "bottom", long.class);
+            ARRAY = lookup.findVarHandle(WorkStealingDeque.class, "array", Object[].class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private volatile long top;
+    // Keeps the thieves' top and the owner's bottom on different cache lines
+    @SuppressWarnings("unused")
+    private long p1, p2, p3, p4, p5, p6, p7;
+    @SuppressWarnings("unused")
+    private volatile long bottom;
+    @SuppressWarnings("unused")
+    private volatile Object[] array;
+
+    // Capacity is rounded up to a power of two
+    public WorkStealingDeque(int initialCapacity) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + initialCapacity);
+        }
+        int highest = Integer.highestOneBit(initialCapacity);
+        array = new Object[highest == initialCapacity ? highest : highest << 1];
+    }
+
+    // Owner only
+    public void push(T item) {
+        if (item == null) {
+            throw new NullPointerException();
+        }
+        long b = (long) BOTTOM.getOpaque(this);
+        long t = (long) TOP.getAcquire(this);
+        Object[] a = (Object[]) ARRAY.getOpaque(this);
+        if (b - t > a.length - 1) {
+            a = grow(a, t, b);
+        }
+        SLOT.setOpaque(a, (int) (b & (a.length - 1)), item);
+        BOTTOM.setRelease(this, b + 1);
+    }
+
+    // Owner only; newest element first
+    @SuppressWarnings("unchecked")
+    public T pop() {
+        long b = (long) BOTTOM.getOpaque(this) - 1;
+        Object[] a = (Object[]) ARRAY.getOpaque(this);
+        BOTTOM.setOpaque(this, b);
+        // Publishes the decremented bottom before top is read, so a thief
+        // and the owner cannot both take the last element
+        VarHandle.fullFence();
+        long t = (long) TOP.getOpaque(this);
+        if (t > b) {
+            BOTTOM.setOpaque(this, b + 1);
+            return null;
+        }
+        int index = (int) (b & (a.length - 1));
+        T item = (T) SLOT.getOpaque(a, index);
+        if (t == b) {
+            // Last element: whoever moves top first gets it
+            if (!TOP.compareAndSet(this, t, t + 1)) {
+                item = null;
+            }
+            BOTTOM.setOpaque(this, b + 1);
+        } else {
+            SLOT.setOpaque(a, index, null);
+        }
+        return item;
+    }
+
+    // Any thread; oldest element first. Returns null when the deque is
+    // empty or another thread took the element first.
+    @SuppressWarnings("unchecked")
+    public T steal() {
+        long t = (long) TOP.getAcquire(this);
+        VarHandle.fullFence();
+        long b = (long) BOTTOM.getAcquire(this);
+        if (t >= b) {
+            return null;
+        }
+        Object[] a = (Object[]) ARRAY.getAcquire(this);
+        T item = (T) SLOT.getOpaque(a, (int) (t & (a.length - 1)));
+        return TOP.compareAndSet(this, t, t + 1) ? item : null;
+    }
+
+    // Copies [t, b) into an array twice the size; thieves still reading the
+    // old array find the same elements at the same positions
+    private Object[] grow(Object[] old, long t, long b) {
+        Object[] grown = new Object[old.length << 1];
+        for (long i = t; i < b; i++) {
+            grown[(int) (i & (grown.length - 1))] = old[(int) (i & (old.length - 1))];
+        }
+        ARRAY.setRelease(this, grown);
+        return grown;
+    }
+
+    // A snapshot; may be stale by the time it returns
+    public int size() {
+        long size = (long) BOTTOM.getVolatile(this) - (long) TOP.getVolatile(this);
+        return (int) Math.max(0, size);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -0,0 +1,335 @@
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Fixed set of workers, each owning a WorkStealingDeque, instead of one
+// queue shared by everybody as in MultiExecutor or a ThreadPoolExecutor.
+// A task submitted from inside a worker (execute() or Task.fork()) goes to
+// the bottom of that worker's own deque, and the worker pops its newest
+// task first, so spawned subtasks stay on the core that created them and
+// the owner never contends with anybody in the common case. Tasks from
+// other threads go to a shared submission queue. An idle worker takes
+// from its deque, then the submission queue, then steals the oldest task
+// (usually the biggest piece of a recursive split) from another worker.
+//
+// Workers with nothing to do spin briefly and then park; pushing a task
+// wakes one parked worker if there is any.
+public class WorkStealingScheduler implements Executor, AutoCloseable {
+    private static final int INITIAL_DEQUE_CAPACITY = 256;
+    private static final int IDLE_SPINS = 64;
+
+    private final Worker[] workers;
+    private final ConcurrentLinkedQueue<Runnable> submissions = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleWorkers = new AtomicInteger();
+    private volatile boolean closed;
+
+    public WorkStealingScheduler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public WorkStealingScheduler(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+        }
+        workers = new Worker[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            workers[i] = new Worker(this, i);
+        }
+        for (Worker worker : workers) {
+            worker.start();
+        }
+    }
+
+    // A task that can fork subtasks and join them. join() on a worker runs
+    // other tasks while it waits instead of blocking the worker.
+    public abstract static class Task<V> implements Runnable {
+        private volatile boolean done;
+        private volatile boolean externalWaiter;
+        private V result;
+        private Throwable failure;
+
+        protected abstract V compute();
+
+        // Pushes this task onto the current worker's deque
+        public final Task<V> fork() {
+            if (!(Thread.currentThread() instanceof Worker worker)) {
+                throw new IllegalStateException("fork() outside a scheduler worker; use execute() or invoke()");
+            }
+            worker.scheduler.push(worker, this);
+            return this;
+        }
+
+        public final V join() {
+            if (!done) {
+                if (Thread.currentThread() instanceof Worker worker) {
+                    worker.helpUntilDone(this);
+                } else {
+                    awaitExternally();
+                }
+            }
+            if (failure instanceof RuntimeException e) {
+                throw e;
+            }
+            if (failure instanceof Error e) {
+                throw e;
+            }
+            return result;
+        }
+
+        public final boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public final void run() {
+            try {
+                result = compute();
+            } catch (RuntimeException | Error e) {
+                failure = e;
+            }
+            done = true;
+            if (externalWaiter) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        // Only threads outside the scheduler block; they register first so
+        // the completing worker knows to notify
+        private synchronized void awaitExternally() {
+            externalWaiter = true;
+            boolean interrupted = false;
+            while (!done) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class Worker extends Thread {
+        final WorkStealingScheduler scheduler;
+        final WorkStealingDeque<Runnable> deque = new WorkStealingDeque<>(INITIAL_DEQUE_CAPACITY);
+        volatile boolean parked;
+        long steals;
+        private int seed;
+
+        Worker(WorkStealingScheduler scheduler, int index) {
+            super("WorkStealingScheduler-worker-" + index);
+            this.scheduler = scheduler;
+            this.seed = index * 0x9E3779B9 + 1;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Runnable task = findWork();
+                if (task == null) {
+                    task = awaitWork();
+                    if (task == null) {
+                        return;
+                    }
+                }
+                runTask(task);
+            }
+        }
+
+        // Exceptions from plain Runnables are reported and do not kill the worker
+        private void runTask(Runnable task) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                getUncaughtExceptionHandler().uncaughtException(this, t);
+            }
+        }
+
+        Runnable findWork() {
+            Runnable task = deque.pop();
+            if (task == null) {
+                task = scheduler.submissions.poll();
+            }
+            if (task == null) {
+                task = steal();
+            }
+            return task;
+        }
+
+        // Visits the other workers once, starting at a random one
+        private Runnable steal() {
+            Worker[] workers = scheduler.workers;
+            int n = workers.length;
+            if (n == 1) {
+                return null;
+            }
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            int start = Math.floorMod(seed, n);
+            for (int i = 0; i < n; i++) {
+                Worker victim = workers[(start + i) % n];
+                if (victim != this) {
+                    Runnable task = victim.deque.steal();
+                    if (task != null) {
+                        steals++;
+                        // The victim may have more; let another idle worker look
+                        if (!victim.deque.isEmpty()) {
+                            scheduler.signalWork();
+                        }
+                        return task;
+                    }
+                }
+            }
+            return null;
+        }
+
+        // Spin, then register as idle, look once more and park. Registering
+        // before the last look means a push that the look misses sees the
+        // registration and unparks us. Returns null once the scheduler is
+        // closed and there is no work left.
+        private Runnable awaitWork() {
+            for (int i = 0; i < IDLE_SPINS; i++) {
+                Thread.onSpinWait();
+                Runnable task = findWork();
+                if (task != null) {
+                    return task;
+                }
+            }
+            while (true) {
+                parked = true;
+                scheduler.idleWorkers.incrementAndGet();
+                Runnable task = findWork();
+                if (task == null && !scheduler.closed) {
+                    LockSupport.park(scheduler);
+                }
+                parked = false;
+                scheduler.idleWorkers.decrementAndGet();
+                if (task == null) {
+                    task = findWork();
+                }
+                if (task != null || scheduler.closed) {
+                    return task;
+                }
+            }
+        }
+
+        // Runs this worker's own tasks, or stolen ones, until the awaited
+        // task is done; backs off when there is nothing else to run
+        void helpUntilDone(Task<?> awaited) {
+            int idle = 0;
+            while (!awaited.isDone()) {
+                Runnable task = findWork();
+                if (task != null) {
+                    runTask(task);
+                    idle = 0;
+                } else if (idle++ < IDLE_SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        if (closed) {
+            throw new RejectedExecutionException("scheduler is closed");
+        }
+        if (Thread.currentThread() instanceof Worker worker && worker.scheduler == this) {
+            push(worker, task);
+        } else {
+            submissions.offer(task);
+            // close() may have started after the check above; take the task
+            // back unless somebody already has it
+            if (closed && submissions.remove(task)) {
+                throw new RejectedExecutionException("scheduler is closed");
+            }
+            signalWork();
+        }
+    }
+
+    // Runs the task on the scheduler and waits for its result
+    public <V> V invoke(Task<V> task) {
+        execute(task);
+        return task.join();
+    }
+
+    private void push(Worker worker, Runnable task) {
+        worker.deque.push(task);
+        // Orders the push before reading idleWorkers; pairs with the
+        // increment-then-look in awaitWork
+        VarHandle.fullFence();
+        signalWork();
+    }
+
+    private void signalWork() {
+        if (idleWorkers.get() == 0) {
+            return;
+        }
+        for (Worker worker : workers) {
+            if (worker.parked) {
+                worker.parked = false;
+                LockSupport.unpark(worker);
+                return;
+            }
+        }
+    }
+
+    public int getParallelism() {
+        return workers.length;
+    }
+
+    // Approximate while tasks are running
+    public long getStealCount() {
+        long steals = 0;
+        for (Worker worker : workers) {
+            steals += worker.steals;
+        }
+        return steals;
+    }
+
+    // Stops accepting tasks, lets the workers finish everything already
+    // queued and waits for them to exit. A submission that slipped in after
+    // the last worker looked is run here, on the closing thread.
+    @Override
+    public void close() {
+        closed = true;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        boolean interrupted = false;
+        for (Worker worker : workers) {
+            while (worker.isAlive()) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        Runnable task;
+        while ((task = submissions.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), t);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
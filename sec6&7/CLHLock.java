@@ -0,0 +1,52 @@
+// Craig/Landin/Hagersten lock. The queue is implicit: each waiter spins on
+// its predecessor's node, and unlock() only clears the holder's own node.
+// The holder then takes over its predecessor's node for its next
+// acquisition, since nobody else can still be looking at it.
+public class CLHLock extends QueueLock {
+    private final PaddedReference<Node> tail = new PaddedReference<>(new Node());
+    private final ThreadLocal<Node> myNode = ThreadLocal.withInitial(Node::new);
+    // Only read and written by the lock holder
+    private Node ownerPred;
+
+    public CLHLock() {
+        this(SPIN_ONLY);
+    }
+
+    public CLHLock(int spinsBeforePark) {
+        super(spinsBeforePark);
+    }
+
+    @Override
+    public void lock() {
+        Node node = myNode.get();
+        node.locked = true;
+        Node pred = tail.getAndSet(node);
+        awaitRelease(pred);
+        ownerPred = pred;
+    }
+
+    @Override
+    public boolean tryLock() {
+        Node pred = tail.get();
+        if (pred.locked) {
+            return false;
+        }
+        Node node = myNode.get();
+        node.locked = true;
+        if (!tail.compareAndSet(pred, node)) {
+            node.locked = false;
+            return false;
+        }
+        ownerPred = pred;
+        return true;
+    }
+
+    @Override
+    public void unlock() {
+        Node node = myNode.get();
+        // Read before releasing: the next holder overwrites ownerPred
+        Node pred = ownerPred;
+        release(node);
+        myNode.set(pred);
+    }
+}
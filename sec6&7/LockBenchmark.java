@@ -0,0 +1,441 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.*;
+import java.util.function.Supplier;
+
+// Throughput of the Section 6 lock primitives under contention.
+// Every benchmark runs at each thread count and critical-section length;
+// the read/write locks also run at each read percentage. Results go to a
+// JSON file shaped like JMH's -rf json output so runs can be diffed;
+// scoreError is, as in JMH, the half-width of the 99.9% confidence
+// interval of the mean over the measured iterations.
+//
+// Run: java LockBenchmark [threads=1,2,4,8] [work=0,100,1000] [reads=0,50,90]
+//                         [iterations=3] [millis=500] [bench=regex] [out=lock-benchmark.json]
+public class LockBenchmark {
+    private static final String USAGE = "Usage: java LockBenchmark [threads=1,2,4,8] [work=0,100,1000]"
+            + " [reads=0,50,90] [iterations=3] [millis=500] [bench=regex] [out=lock-benchmark.json]";
+    private static final Set<String> OPTIONS =
+            Set.of("threads", "work", "reads", "iterations", "millis", "bench", "out");
+
+    // One operation on shared state; read says whether it may be a shared access
+    interface Benchmark {
+        void op(boolean read, int work) throws InterruptedException;
+
+        default long failures() {
+            return 0;
+        }
+    }
+
+    static class Shared {
+        long value;
+    }
+
+    // Exclusive locks ignore the read mix, so they run once per work size
+    static final Map<String, Supplier<Benchmark>> EXCLUSIVE = new LinkedHashMap<>();
+    static final Map<String, Supplier<Benchmark>> READ_WRITE = new LinkedHashMap<>();
+    static final int QUEUE_LOCK_SPINS = 1_000;
+    static final long TRY_LOCK_TIMEOUT_MICROS = 100;
+
+    static {
+        EXCLUSIVE.put("synchronized", () -> {
+            Object monitor = new Object();
+            Shared shared = new Shared();
+            return (read, work) -> {
+                synchronized (monitor) {
+                    shared.value++;
+                    consumeCPU(work);
+                }
+            };
+        });
+        EXCLUSIVE.put("reentrantUnfair", () -> exclusive(new ReentrantLock(false)));
+        EXCLUSIVE.put("reentrantFair", () -> exclusive(new ReentrantLock(true)));
+        // FIFO like reentrantFair, but handing over without a park/unpark while waiters are spinning
+        EXCLUSIVE.put("mcs", () -> exclusive(new MCSLock()));
+        EXCLUSIVE.put("mcsPark", () -> exclusive(new MCSLock(QUEUE_LOCK_SPINS)));
+        EXCLUSIVE.put("clh", () -> exclusive(new CLHLock()));
+        EXCLUSIVE.put("clhPark", () -> exclusive(new CLHLock(QUEUE_LOCK_SPINS)));
+        EXCLUSIVE.put("tryLock", () -> {
+            ReentrantLock lock = new ReentrantLock();
+            Shared shared = new Shared();
+            LongAdder failures = new LongAdder();
+            return new Benchmark() {
+                public void op(boolean read, int work) {
+                    while (!lock.tryLock()) {
+                        failures.increment();
+                        Thread.onSpinWait();
+                    }
+                    try {
+                        shared.value++;
+                        consumeCPU(work);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+
+                public long failures() {
+                    return failures.sum();
+                }
+            };
+        });
+        // Waits in the lock's queue like lock(), but gives up after the timeout and retries
+        EXCLUSIVE.put("tryLockTimed", () -> {
+            ReentrantLock lock = new ReentrantLock();
+            Shared shared = new Shared();
+            LongAdder failures = new LongAdder();
+            return new Benchmark() {
+                public void op(boolean read, int work) throws InterruptedException {
+                    while (!lock.tryLock(TRY_LOCK_TIMEOUT_MICROS, TimeUnit.MICROSECONDS)) {
+                        failures.increment();
+                    }
+                    try {
+                        shared.value++;
+                        consumeCPU(work);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+
+                public long failures() {
+                    return failures.sum();
+                }
+            };
+        });
+        EXCLUSIVE.put("lockInterruptibly", () -> {
+            ReentrantLock lock = new ReentrantLock();
+            Shared shared = new Shared();
+            return (read, work) -> {
+                lock.lockInterruptibly();
+                try {
+                    shared.value++;
+                    consumeCPU(work);
+                } finally {
+                    lock.unlock();
+                }
+            };
+        });
+
+        READ_WRITE.put("readWriteLock", () -> {
+            ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+            Shared shared = new Shared();
+            return (read, work) -> {
+                Lock lock = read ? rwLock.readLock() : rwLock.writeLock();
+                lock.lock();
+                try {
+                    if (read) {
+                        sink(shared.value);
+                    } else {
+                        shared.value++;
+                    }
+                    consumeCPU(work);
+                } finally {
+                    lock.unlock();
+                }
+            };
+        });
+        READ_WRITE.put("stampedLock", () -> {
+            StampedLock lock = new StampedLock();
+            Shared shared = new Shared();
+            return (read, work) -> {
+                if (read) {
+                    // Optimistic read, falling back to a read lock if a writer got in
+                    long stamp = lock.tryOptimisticRead();
+                    long value = shared.value;
+                    consumeCPU(work);
+                    if (!lock.validate(stamp)) {
+                        stamp = lock.readLock();
+                        try {
+                            value = shared.value;
+                            consumeCPU(work);
+                        } finally {
+                            lock.unlockRead(stamp);
+                        }
+                    }
+                    sink(value);
+                } else {
+                    long stamp = lock.writeLock();
+                    try {
+                        shared.value++;
+                        consumeCPU(work);
+                    } finally {
+                        lock.unlockWrite(stamp);
+                    }
+                }
+            };
+        });
+        READ_WRITE.put("sharedStateStamped", () -> sharedState(SharedState.stamped(new Shared())));
+        READ_WRITE.put("sharedStateCopyOnWrite", () -> sharedState(SharedState.copyOnWrite(new Shared(), s -> {
+            Shared copy = new Shared();
+            copy.value = s.value;
+            return copy;
+        })));
+    }
+
+    static Benchmark sharedState(SharedState<Shared> state) {
+        return (read, work) -> {
+            if (read) {
+                sink(state.read(s -> {
+                    consumeCPU(work);
+                    return s.value;
+                }));
+            } else {
+                state.write(s -> {
+                    s.value++;
+                    consumeCPU(work);
+                });
+            }
+        };
+    }
+
+    static Benchmark exclusive(Lock lock) {
+        Shared shared = new Shared();
+        return (read, work) -> {
+            lock.lock();
+            try {
+                shared.value++;
+                consumeCPU(work);
+            } finally {
+                lock.unlock();
+            }
+        };
+    }
+
+    // Burns roughly 'tokens' units of CPU, like JMH's Blackhole.consumeCPU
+    private static volatile long blackhole;
+
+    static void consumeCPU(int tokens) {
+        long x = tokens;
+        for (int i = 0; i < tokens; i++) {
+            x = x * 6364136223846793005L + 1442695040888963407L;
+        }
+        if (x == 42) {
+            blackhole = x;
+        }
+    }
+
+    static void sink(long value) {
+        if (value == Long.MIN_VALUE) {
+            blackhole = value;
+        }
+    }
+
+    static class Trial {
+        String name;
+        int threads;
+        int work;
+        Integer readPercent;
+        double[] scores;
+        double failuresPerOp;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 1 || !OPTIONS.contains(arg.substring(0, eq))) {
+                System.err.println("Unknown argument: " + arg);
+                System.err.println(USAGE);
+                System.exit(2);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] threadCounts = parseList(options.getOrDefault("threads", "1,2,4,8," + cores));
+        int[] workSizes = parseList(options.getOrDefault("work", "0,100,1000"));
+        int[] readMixes = parseList(options.getOrDefault("reads", "0,50,90"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "3"));
+        long millis = Long.parseLong(options.getOrDefault("millis", "500"));
+        String filter = options.getOrDefault("bench", ".*");
+        Path out = Path.of(options.getOrDefault("out", "lock-benchmark.json"));
+
+        System.out.println("===== Lock Benchmark (" + cores + " cores) =====");
+        List<Trial> trials = new ArrayList<>();
+        for (int threads : threadCounts) {
+            for (int work : workSizes) {
+                for (Map.Entry<String, Supplier<Benchmark>> entry : EXCLUSIVE.entrySet()) {
+                    if (entry.getKey().matches(filter)) {
+                        trials.add(measure(entry.getKey(), entry.getValue(), threads, work, null, iterations, millis));
+                    }
+                }
+                for (Map.Entry<String, Supplier<Benchmark>> entry : READ_WRITE.entrySet()) {
+                    if (!entry.getKey().matches(filter)) {
+                        continue;
+                    }
+                    for (int reads : readMixes) {
+                        trials.add(measure(entry.getKey(), entry.getValue(), threads, work, reads, iterations, millis));
+                    }
+                }
+            }
+        }
+
+        writeJson(out, trials);
+        System.out.println("Results written to " + out.toAbsolutePath());
+    }
+
+    static int[] parseList(String list) {
+        return Arrays.stream(list.split(",")).mapToInt(Integer::parseInt).distinct().toArray();
+    }
+
+    static Trial measure(String name, Supplier<Benchmark> factory, int threads, int work, Integer readPercent,
+                         int iterations, long millis) throws InterruptedException {
+        Trial trial = new Trial();
+        trial.name = name;
+        trial.threads = threads;
+        trial.work = work;
+        trial.readPercent = readPercent;
+        trial.scores = new double[iterations];
+
+        runIteration(factory.get(), threads, work, readPercent == null ? 0 : readPercent, millis);
+        long totalOps = 0;
+        long totalFailures = 0;
+        for (int i = 0; i < iterations; i++) {
+            Benchmark benchmark = factory.get();
+            long ops = runIteration(benchmark, threads, work, readPercent == null ? 0 : readPercent, millis);
+            trial.scores[i] = ops * 1000.0 / millis;
+            totalOps += ops;
+            totalFailures += benchmark.failures();
+        }
+        trial.failuresPerOp = totalOps == 0 ? 0 : (double) totalFailures / totalOps;
+
+        System.out.printf("%-22s threads=%-3d work=%-5d reads=%-4s %,14.0f ops/s%n",
+                name, threads, work, readPercent == null ? "-" : readPercent + "%", mean(trial.scores));
+        return trial;
+    }
+
+    // Runs the benchmark on all threads for the given time, returns completed operations
+    static long runIteration(Benchmark benchmark, int threads, int work, int readPercent, long millis)
+            throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        long[] counts = new long[threads];
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            workers[t] = new Thread(() -> {
+                long ops = 0;
+                // Cheap per-thread generator so the read/write mix does not itself contend
+                long seed = index * 0x9E3779B97F4A7C15L + 1;
+                ready.countDown();
+                try {
+                    go.await();
+                    while (!Thread.currentThread().isInterrupted()) {
+                        seed ^= seed << 13;
+                        seed ^= seed >>> 7;
+                        seed ^= seed << 17;
+                        boolean read = Math.floorMod(seed, 100) < readPercent;
+                        benchmark.op(read, work);
+                        ops++;
+                    }
+                } catch (InterruptedException e) {
+                    // interrupted inside lockInterruptibly: iteration is over
+                }
+                counts[index] = ops;
+            }, "bench-" + t);
+            workers[t].start();
+        }
+
+        ready.await();
+        go.countDown();
+        Thread.sleep(millis);
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        long total = 0;
+        for (int t = 0; t < threads; t++) {
+            workers[t].join();
+            total += counts[t];
+        }
+        return total;
+    }
+
+    static double mean(double[] values) {
+        return Arrays.stream(values).average().orElse(0);
+    }
+
+    static double stdDev(double[] values) {
+        double mean = mean(values);
+        double sum = 0;
+        for (double v : values) {
+            sum += (v - mean) * (v - mean);
+        }
+        return values.length < 2 ? 0 : Math.sqrt(sum / (values.length - 1));
+    }
+
+    // Two-sided 99.9% Student t quantiles (t at 0.9995) for 1..30 degrees of freedom
+    private static final double[] T_999 = {
+        636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+        4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+        3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646
+    };
+
+    // Beyond the table, the value at the next lower tabulated degree, which errs wide
+    static double tQuantile999(int degreesOfFreedom) {
+        if (degreesOfFreedom <= T_999.length) {
+            return T_999[degreesOfFreedom - 1];
+        }
+        return degreesOfFreedom < 40 ? 3.646 : degreesOfFreedom < 60 ? 3.551
+                : degreesOfFreedom < 120 ? 3.460 : 3.373;
+    }
+
+    // Half-width of the 99.9% confidence interval of the mean; NaN below two samples, as in JMH
+    static double scoreError(double[] values) {
+        if (values.length < 2) {
+            return Double.NaN;
+        }
+        return tQuantile999(values.length - 1) * stdDev(values) / Math.sqrt(values.length);
+    }
+
+    // JSON has no NaN; JMH writes it as a string
+    static String jsonNumber(double value) {
+        return Double.isNaN(value) ? "\"NaN\"" : String.valueOf(value);
+    }
+
+    static void writeJson(Path out, List<Trial> trials) throws IOException {
+        try (PrintWriter json = new PrintWriter(Files.newBufferedWriter(out))) {
+            json.println("[");
+            for (int i = 0; i < trials.size(); i++) {
+                Trial trial = trials.get(i);
+                json.println("  {");
+                json.println("    \"benchmark\": \"LockBenchmark." + trial.name + "\",");
+                json.println("    \"mode\": \"thrpt\",");
+                json.println("    \"threads\": " + trial.threads + ",");
+                json.println("    \"jvm\": \"" + System.getProperty("java.vm.version") + "\",");
+                json.print("    \"params\": { \"work\": \"" + trial.work + "\"");
+                if (trial.readPercent != null) {
+                    json.print(", \"readPercent\": \"" + trial.readPercent + "\"");
+                }
+                json.println(" },");
+                json.println("    \"primaryMetric\": {");
+                double score = mean(trial.scores);
+                double error = scoreError(trial.scores);
+                json.println("      \"score\": " + score + ",");
+                json.println("      \"scoreError\": " + jsonNumber(error) + ",");
+                json.println("      \"scoreConfidence\": [" + jsonNumber(score - error) + ", "
+                        + jsonNumber(score + error) + "],");
+                json.println("      \"scoreUnit\": \"ops/s\",");
+                json.print("      \"rawData\": [[");
+                for (int s = 0; s < trial.scores.length; s++) {
+                    json.print((s > 0 ? ", " : "") + trial.scores[s]);
+                }
+                json.println("]]");
+                json.print("    }");
+                if (trial.name.startsWith("tryLock")) {
+                    json.println(",");
+                    json.println("    \"secondaryMetrics\": { \"failedTryLocksPerOp\": { \"score\": "
+                            + trial.failuresPerOp + ", \"scoreUnit\": \"#/op\" } }");
+                } else {
+                    json.println();
+                }
+                json.println(i < trials.size() - 1 ? "  }," : "  }");
+            }
+            json.println("]");
+        }
+    }
+}
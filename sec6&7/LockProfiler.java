@@ -0,0 +1,106 @@
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+// Registry of lock profiles by name. ProfiledLock feeds it directly;
+// synchronized blocks cannot be wrapped, so their contention is picked up
+// from JFR monitor-enter events once startMonitorProfiling() is called.
+public class LockProfiler {
+    private static final Map<String, LockStats> LOCKS = new ConcurrentHashMap<>();
+    private static volatile int sampleRate = 16;
+    private static RecordingStream monitorStream;
+
+    public static LockStats statsFor(String name) {
+        return LOCKS.computeIfAbsent(name, LockProfiler::register);
+    }
+
+    private static LockStats register(String name) {
+        LockStats stats = new LockStats(name);
+        try {
+            ObjectName objectName = new ObjectName("parallelcomputation:type=Lock,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats, objectName);
+        } catch (JMException e) {
+            System.out.println("Could not register JMX bean for lock " + name + ": " + e);
+        }
+        return stats;
+    }
+
+    // Uncontended hold times and contended call sites are recorded for
+    // roughly one acquisition in 'rate'
+    public static void setSampleRate(int rate) {
+        if (rate < 1) {
+            throw new IllegalArgumentException("sample rate must be at least 1: " + rate);
+        }
+        sampleRate = rate;
+    }
+
+    static boolean sample() {
+        int rate = sampleRate;
+        return rate == 1 || ThreadLocalRandom.current().nextInt(rate) == 0;
+    }
+
+    // Records synchronized blocks that waited longer than the threshold, named
+    // "monitor <class of the monitor object>"
+    public static synchronized void startMonitorProfiling(Duration threshold) {
+        if (monitorStream != null) {
+            return;
+        }
+        monitorStream = new RecordingStream();
+        monitorStream.enable("jdk.JavaMonitorEnter").withThreshold(threshold).withStackTrace();
+        monitorStream.onEvent("jdk.JavaMonitorEnter", LockProfiler::recordMonitorEnter);
+        monitorStream.startAsync();
+    }
+
+    public static synchronized void stopMonitorProfiling() {
+        if (monitorStream != null) {
+            monitorStream.stop();
+            monitorStream.close();
+            monitorStream = null;
+        }
+    }
+
+    private static void recordMonitorEnter(RecordedEvent event) {
+        String monitorClass = event.getClass("monitorClass") == null ? "?" : event.getClass("monitorClass").getName();
+        LockStats stats = statsFor("monitor " + monitorClass);
+        stats.recordAcquisition();
+        stats.recordWait(event.getDuration().toNanos());
+        if (event.getStackTrace() != null) {
+            for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                String type = frame.getMethod().getType().getName();
+                if (!type.startsWith("java.") && !type.startsWith("jdk.")) {
+                    stats.recordCallSite(type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber());
+                    break;
+                }
+            }
+        }
+    }
+
+    // Locks ordered by total time threads spent waiting for them
+    public static List<LockStats> topContended(int limit) {
+        return LOCKS.values().stream()
+                .sorted(Comparator.comparingLong(LockStats::getTotalWaitNanos).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    public static void printReport(int limit) {
+        System.out.println("--- Top contended locks ---");
+        for (LockStats stats : topContended(limit)) {
+            System.out.println(stats);
+            stats.getTopCallSites(3).forEach((site, count) ->
+                    System.out.println("    " + count + "x waited at " + site));
+            stats.getTopHolderSites(3).forEach((site, count) ->
+                    System.out.println("    " + count + "x waited for a holder from " + site));
+        }
+    }
+}
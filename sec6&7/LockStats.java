@@ -0,0 +1,136 @@
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters for one named lock, shared by every ProfiledLock with that name
+public class LockStats implements LockStatsMXBean {
+    private final String name;
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder holdSamples = new LongAdder();
+    private final LongAdder holdNanos = new LongAdder();
+    private final LongAccumulator maxHoldNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder tryLockFailures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final Map<String, LongAdder> callSites = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> holderSites = new ConcurrentHashMap<>();
+
+    LockStats(String name) {
+        this.name = name;
+    }
+
+    void recordAcquisition() {
+        acquisitions.increment();
+    }
+
+    void recordWait(long nanos) {
+        contended.increment();
+        waitNanos.add(nanos);
+        maxWaitNanos.accumulate(nanos);
+    }
+
+    void recordHold(long nanos) {
+        holdSamples.increment();
+        holdNanos.add(nanos);
+        maxHoldNanos.accumulate(nanos);
+    }
+
+    void recordTryLockFailure() {
+        tryLockFailures.increment();
+    }
+
+    void recordTimeout() {
+        timeouts.increment();
+    }
+
+    void recordCallSite(String site) {
+        callSites.computeIfAbsent(site, s -> new LongAdder()).increment();
+    }
+
+    void recordHolderSite(String site) {
+        holderSites.computeIfAbsent(site, s -> new LongAdder()).increment();
+    }
+
+    // Sampled call sites of contended acquisitions, most frequent first
+    public Map<String, Long> getTopCallSites(int limit) {
+        return top(callSites, limit);
+    }
+
+    // Sampled call sites where the lock was taken by a thread others then
+    // waited for, most frequent first; only ProfiledLock knows the holder
+    public Map<String, Long> getTopHolderSites(int limit) {
+        return top(holderSites, limit);
+    }
+
+    private static Map<String, Long> top(Map<String, LongAdder> sites, int limit) {
+        Map<String, Long> top = new LinkedHashMap<>();
+        sites.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, LongAdder> e) -> e.getValue().sum()).reversed())
+                .limit(limit)
+                .forEach(e -> top.put(e.getKey(), e.getValue().sum()));
+        return top;
+    }
+
+    public long getTotalWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    @Override
+    public long getContendedAcquisitions() {
+        return contended.sum();
+    }
+
+    @Override
+    public long getTotalWaitMicros() {
+        return waitNanos.sum() / 1_000;
+    }
+
+    @Override
+    public long getMaxWaitMicros() {
+        return maxWaitNanos.get() / 1_000;
+    }
+
+    @Override
+    public long getMeanHoldMicros() {
+        long samples = holdSamples.sum();
+        return samples == 0 ? 0 : holdNanos.sum() / samples / 1_000;
+    }
+
+    @Override
+    public long getMaxHoldMicros() {
+        return maxHoldNanos.get() / 1_000;
+    }
+
+    @Override
+    public long getTryLockFailures() {
+        return tryLockFailures.sum();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-28s acquired=%d contended=%d wait(total=%dus max=%dus) hold(mean=%dus max=%dus) "
+                        + "tryLockFailed=%d timedOut=%d",
+                name, getAcquisitions(), getContendedAcquisitions(), getTotalWaitMicros(), getMaxWaitMicros(),
+                getMeanHoldMicros(), getMaxHoldMicros(), getTryLockFailures(), getTimeouts());
+    }
+}
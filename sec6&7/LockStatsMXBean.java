@@ -0,0 +1,20 @@
+// JMX view of one named lock's profile; times are in microseconds
+public interface LockStatsMXBean {
+    String getName();
+
+    long getAcquisitions();
+
+    long getContendedAcquisitions();
+
+    long getTotalWaitMicros();
+
+    long getMaxWaitMicros();
+
+    long getMeanHoldMicros();
+
+    long getMaxHoldMicros();
+
+    long getTryLockFailures();
+
+    long getTimeouts();
+}
@@ -0,0 +1,54 @@
+// Mellor-Crummey/Scott lock. Each waiter spins on its own node and the
+// lock holder hands over by clearing its successor's flag. The queue is
+// linked forwards, so unlock() may have to wait briefly for a successor
+// that has swapped itself into the tail but not yet linked itself in.
+public class MCSLock extends QueueLock {
+    private final PaddedReference<Node> tail = new PaddedReference<>();
+    // Each thread reuses one node per lock; it is free again once unlock() returns
+    private final ThreadLocal<Node> myNode = ThreadLocal.withInitial(Node::new);
+
+    public MCSLock() {
+        this(SPIN_ONLY);
+    }
+
+    public MCSLock(int spinsBeforePark) {
+        super(spinsBeforePark);
+    }
+
+    @Override
+    public void lock() {
+        Node node = myNode.get();
+        node.next = null;
+        node.locked = true;
+        Node pred = tail.getAndSet(node);
+        if (pred != null) {
+            pred.next = node;
+            awaitRelease(node);
+        }
+    }
+
+    @Override
+    public boolean tryLock() {
+        if (tail.get() != null) {
+            return false;
+        }
+        Node node = myNode.get();
+        node.next = null;
+        return tail.compareAndSet(null, node);
+    }
+
+    @Override
+    public void unlock() {
+        Node node = myNode.get();
+        Node next = node.next;
+        if (next == null) {
+            if (tail.compareAndSet(node, null)) {
+                return;
+            }
+            while ((next = node.next) == null) {
+                Thread.onSpinWait();
+            }
+        }
+        release(next);
+    }
+}
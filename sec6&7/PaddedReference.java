@@ -0,0 +1,16 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+// Queue tail on a cache line of its own, so swapping it does not also
+// invalidate whatever the lock object happens to be allocated next to
+final class PaddedReference<T> extends AtomicReference<T> {
+    private static final long serialVersionUID = 1L;
+
+    long p1, p2, p3, p4, p5, p6, p7;
+
+    PaddedReference() {
+    }
+
+    PaddedReference(T initial) {
+        super(initial);
+    }
+}
@@ -0,0 +1,262 @@
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// ReentrantLock that reports to LockProfiler under a name. Every acquisition
+// is counted; only contended ones pay for timing the wait, and hold times
+// and call sites are sampled, so an uncontended lock()/unlock() stays cheap.
+// An acquisition is contended when the tryLock() fast path fails.
+//
+// A wait is attributed both to where the waiter stood and to where the
+// thread holding the lock acquired it, which is usually the code to fix.
+// Owners only record their call site (sampled) once the lock has been
+// contended, so a lock nobody waits for never walks the stack.
+public class ProfiledLock implements Lock {
+    private static final StackWalker WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    private final ReentrantLock lock;
+    private final LockStats stats;
+    // Written and read only by the owning thread; 0 when this hold is not sampled
+    private long holdStart;
+    // Hints read racily by waiters; a stale value only misattributes one sample
+    private boolean seenContention;
+    private String ownerSite;
+
+    public ProfiledLock(String name) {
+        this(name, false);
+    }
+
+    public ProfiledLock(String name, boolean fair) {
+        this.lock = new ReentrantLock(fair);
+        this.stats = LockProfiler.statsFor(name);
+    }
+
+    // A plain tryLock() barges past queued threads, which a fair lock must not do
+    private boolean tryFastPath() {
+        return (!lock.isFair() || !lock.hasQueuedThreads()) && lock.tryLock();
+    }
+
+    // Called after a failed fast path, before blocking; returns where the
+    // current owner acquired the lock, if it was sampled
+    private String contended() {
+        seenContention = true;
+        return ownerSite;
+    }
+
+    private void acquired() {
+        acquired(0, false, null);
+    }
+
+    private void acquired(long waitNanos, boolean contended, String holderSite) {
+        stats.recordAcquisition();
+        boolean sampled = LockProfiler.sample();
+        String site = null;
+        if (contended) {
+            stats.recordWait(waitNanos);
+            if (holderSite != null) {
+                stats.recordHolderSite(holderSite);
+            }
+            if (sampled) {
+                site = callSite();
+                stats.recordCallSite(site);
+            }
+        }
+        if (lock.getHoldCount() == 1) {
+            // Sampled holds only: also timing every contended one would weight
+            // the hold stats towards the holds that follow a wait
+            holdStart = sampled ? System.nanoTime() : 0;
+            if (sampled && seenContention) {
+                ownerSite = site != null ? site : callSite();
+            } else if (ownerSite != null) {
+                ownerSite = null;
+            }
+        }
+    }
+
+    private static String callSite() {
+        return WALKER.walk(frames -> frames
+                .filter(f -> f.getDeclaringClass() != ProfiledLock.class
+                        && f.getDeclaringClass() != ProfiledCondition.class)
+                .findFirst()
+                .map(f -> f.getClassName() + "." + f.getMethodName() + ":" + f.getLineNumber())
+                .orElse("<unknown>"));
+    }
+
+    @Override
+    public void lock() {
+        if (tryFastPath()) {
+            acquired();
+            return;
+        }
+        String holderSite = contended();
+        long start = System.nanoTime();
+        lock.lock();
+        acquired(System.nanoTime() - start, true, holderSite);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (tryFastPath()) {
+            acquired();
+            return;
+        }
+        String holderSite = contended();
+        long start = System.nanoTime();
+        try {
+            lock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            // Time spent queued still counts even though the lock was never obtained
+            stats.recordWait(System.nanoTime() - start);
+            throw e;
+        }
+        acquired(System.nanoTime() - start, true, holderSite);
+    }
+
+    @Override
+    public boolean tryLock() {
+        if (!lock.tryLock()) {
+            stats.recordTryLockFailure();
+            return false;
+        }
+        acquired();
+        return true;
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (tryFastPath()) {
+            acquired();
+            return true;
+        }
+        String holderSite = contended();
+        long start = System.nanoTime();
+        if (!lock.tryLock(time, unit)) {
+            stats.recordWait(System.nanoTime() - start);
+            stats.recordTimeout();
+            return false;
+        }
+        acquired(System.nanoTime() - start, true, holderSite);
+        return true;
+    }
+
+    @Override
+    public void unlock() {
+        if (lock.getHoldCount() == 1 && holdStart != 0) {
+            stats.recordHold(System.nanoTime() - holdStart);
+            holdStart = 0;
+        }
+        lock.unlock();
+    }
+
+    @Override
+    public Condition newCondition() {
+        return new ProfiledCondition(lock.newCondition());
+    }
+
+    public boolean isHeldByCurrentThread() {
+        return lock.isHeldByCurrentThread();
+    }
+
+    public LockStats getStats() {
+        return stats;
+    }
+
+    // Awaiting releases the lock, so the hold is split around the wait. Getting
+    // the lock back is part of the same acquisition and is not counted again.
+    private class ProfiledCondition implements Condition {
+        private final Condition condition;
+
+        ProfiledCondition(Condition condition) {
+            this.condition = condition;
+        }
+
+        private boolean pauseHold() {
+            boolean timing = holdStart != 0;
+            if (timing) {
+                stats.recordHold(System.nanoTime() - holdStart);
+                holdStart = 0;
+            }
+            return timing;
+        }
+
+        private void resumeHold(boolean timing, String site) {
+            ownerSite = site;
+            if (timing) {
+                holdStart = System.nanoTime();
+            }
+        }
+
+        @Override
+        public void await() throws InterruptedException {
+            String site = ownerSite;
+            boolean timing = pauseHold();
+            try {
+                condition.await();
+            } finally {
+                resumeHold(timing, site);
+            }
+        }
+
+        @Override
+        public void awaitUninterruptibly() {
+            String site = ownerSite;
+            boolean timing = pauseHold();
+            try {
+                condition.awaitUninterruptibly();
+            } finally {
+                resumeHold(timing, site);
+            }
+        }
+
+        @Override
+        public long awaitNanos(long nanosTimeout) throws InterruptedException {
+            String site = ownerSite;
+            boolean timing = pauseHold();
+            try {
+                return condition.awaitNanos(nanosTimeout);
+            } finally {
+                resumeHold(timing, site);
+            }
+        }
+
+        @Override
+        public boolean await(long time, TimeUnit unit) throws InterruptedException {
+            String site = ownerSite;
+            boolean timing = pauseHold();
+            try {
+                return condition.await(time, unit);
+            } finally {
+                resumeHold(timing, site);
+            }
+        }
+
+        @Override
+        public boolean awaitUntil(Date deadline) throws InterruptedException {
+            String site = ownerSite;
+            boolean timing = pauseHold();
+            try {
+                return condition.awaitUntil(deadline);
+            } finally {
+                resumeHold(timing, site);
+            }
+        }
+
+        @Override
+        public void signal() {
+            condition.signal();
+        }
+
+        @Override
+        public void signalAll() {
+            condition.signalAll();
+        }
+    }
+}
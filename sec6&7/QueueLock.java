@@ -0,0 +1,106 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+
+// Common part of the MCS and CLH queue locks. Waiters form a FIFO queue
+// and each one spins on a flag in a queue node, so a release only touches
+// the cache line of the next waiter instead of every spinning thread.
+// With spinsBeforePark >= 0 a waiter parks after that many spins and the
+// releasing thread unparks it, which keeps the locks usable when there are
+// more threads than cores.
+//
+// Unlike ReentrantLock these locks are not reentrant, do not support
+// conditions, and only the untimed lock() keeps the FIFO order: a queued
+// waiter cannot leave the queue, so lockInterruptibly() checks for an
+// interrupt before queueing and tryLock(time, unit) polls tryLock().
+public abstract class QueueLock implements Lock {
+    public static final int SPIN_ONLY = -1;
+
+    static final class Node {
+        // Spun on by the waiter; padded so neighbouring nodes never share a line
+        volatile boolean locked;
+        volatile Node next;
+        volatile Thread waiter;
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    private final int spinsBeforePark;
+
+    protected QueueLock(int spinsBeforePark) {
+        if (spinsBeforePark < SPIN_ONLY) {
+            throw new IllegalArgumentException("spinsBeforePark must be >= 0 or SPIN_ONLY: " + spinsBeforePark);
+        }
+        this.spinsBeforePark = spinsBeforePark;
+    }
+
+    // Waits until node.locked is cleared by release(node)
+    final void awaitRelease(Node node) {
+        if (spinsBeforePark == SPIN_ONLY) {
+            while (node.locked) {
+                Thread.onSpinWait();
+            }
+            return;
+        }
+        for (int i = 0; i < spinsBeforePark; i++) {
+            if (!node.locked) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        // Publish the waiter before re-checking, release() clears the flag
+        // before reading it, so one of the two always sees the other
+        node.waiter = Thread.currentThread();
+        while (node.locked) {
+            LockSupport.park(this);
+        }
+        node.waiter = null;
+    }
+
+    final void release(Node node) {
+        node.locked = false;
+        Thread waiter = node.waiter;
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        lock();
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(time);
+        int attempts = 0;
+        while (!tryLock()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            if (attempts++ < 100) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(this, Math.min(remaining, 20_000));
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Condition newCondition() {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support conditions");
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + (spinsBeforePark == SPIN_ONLY ? "[spin]" : "[spin " + spinsBeforePark + " then park]");
+    }
+}
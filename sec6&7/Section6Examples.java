@@ -1,5 +1,11 @@
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 
 class SynchronizedExample {
     private final Object monitor = new Object();
@@ -12,7 +18,7 @@ class SynchronizedExample {
 }
 
 class ReentrantLockExample {
-    private final ReentrantLock lock = new ReentrantLock();
+    private final ProfiledLock lock = new ProfiledLock("ReentrantLockExample");
 
     public void criticalSection() {
         lock.lock();
@@ -32,7 +38,7 @@ public class Section6Examples {
 
     public static void reentrantExample() {
         System.out.println("\n=== ReentrantLock - Reentrant Example ===");
-        ReentrantLock lock = new ReentrantLock();
+        ProfiledLock lock = new ProfiledLock("reentrant");
 
         Thread thread = new Thread(() -> {
             lock.lock();
@@ -61,7 +67,7 @@ public class Section6Examples {
 
     public static void tryLockExample() {
         System.out.println("\n=== ReentrantLock - tryLock() Example ===");
-        ReentrantLock lock = new ReentrantLock();
+        ProfiledLock lock = new ProfiledLock("tryLock");
 
         Thread t1 = new Thread(() -> {
             lock.lock();
@@ -101,7 +107,7 @@ public class Section6Examples {
 
     public static void tryLockWithTimeoutExample() {
         System.out.println("\n=== ReentrantLock - tryLock with Timeout Example ===");
-        ReentrantLock lock = new ReentrantLock();
+        ProfiledLock lock = new ProfiledLock("tryLockWithTimeout");
 
         Thread t1 = new Thread(() -> {
             lock.lock();
@@ -145,8 +151,19 @@ public class Section6Examples {
 
     public static void fairnessExample() {
         System.out.println("\n=== ReentrantLock - Fairness Example ===");
-        ReentrantLock fairLock = new ReentrantLock(true);
+        runInTurns(new ProfiledLock("fairness", true));
+    }
+
+    // MCS and CLH locks are FIFO too, without a global queue lock: each
+    // waiter spins (here: briefly, then parks) on its own queue node
+    public static void queueLockFairnessExample() {
+        System.out.println("\n=== Queue Locks - MCS Fairness Example ===");
+        runInTurns(new MCSLock(1_000));
+        System.out.println("\n=== Queue Locks - CLH Fairness Example ===");
+        runInTurns(new CLHLock(1_000));
+    }
 
+    private static void runInTurns(Lock fairLock) {
         Runnable task = () -> {
             String threadName = Thread.currentThread().getName();
             System.out.println(threadName + " trying to acquire lock");
@@ -182,7 +199,7 @@ public class Section6Examples {
 
     public static void lockInterruptiblyExample() {
         System.out.println("\n=== ReentrantLock - lockInterruptibly Example ===");
-        ReentrantLock lock = new ReentrantLock();
+        ProfiledLock lock = new ProfiledLock("lockInterruptibly");
 
         Thread t1 = new Thread(() -> {
             lock.lock();
@@ -237,7 +254,7 @@ public class Section6Examples {
 
     public static void conditionExample() {
         System.out.println("\n=== ReentrantLock - Condition Example ===");
-        ReentrantLock lock = new ReentrantLock();
+        ProfiledLock lock = new ProfiledLock("condition");
         var condition = lock.newCondition();
         SharedData sharedData = new SharedData();
 
@@ -287,15 +304,81 @@ public class Section6Examples {
         }
     }
 
+    static class ServiceConfig {
+        String host = "host-0";
+        int port = 8000;
+    }
+
+    // Many readers, one occasional writer. Readers copy the values they need
+    // out of the state; a pair that does not match would be a torn read.
+    public static void readMostlyExample() {
+        System.out.println("\n=== StampedLock - Read-Mostly Shared State Example ===");
+        SharedState<ServiceConfig> stamped = SharedState.stamped(new ServiceConfig());
+        SharedState<Map<String, String>> routes = SharedState.copyOnWrite(
+                Map.of("/orders", "host-0"), HashMap::new, Collections::unmodifiableMap);
+
+        AtomicLong reads = new AtomicLong();
+        AtomicLong tornReads = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(() -> {
+                long count = 0;
+                while (running.get()) {
+                    String address = stamped.read(c -> c.host + ":" + c.port);
+                    int version = Integer.parseInt(address.substring(5, address.indexOf(':')));
+                    if (!address.endsWith(":" + (8000 + version))) {
+                        tornReads.incrementAndGet();
+                    }
+                    routes.read(table -> table.get("/orders"));
+                    count++;
+                }
+                reads.addAndGet(count);
+            });
+            readers[i].start();
+        }
+
+        try {
+            for (int version = 1; version <= 50; version++) {
+                int v = version;
+                stamped.write(c -> {
+                    c.host = "host-" + v;
+                    c.port = 8000 + v;
+                });
+                routes.write(table -> table.put("/orders", "host-" + v));
+                Thread.sleep(10);
+            }
+            running.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+
+        System.out.println("Reads: " + reads.get() + ", torn reads seen: " + tornReads.get()
+                + ", optimistic reads retried under the read lock: " + stamped.getOptimisticFailures());
+        System.out.println("Final config: " + stamped.read(c -> c.host + ":" + c.port)
+                + ", /orders routed to " + routes.read(table -> table.get("/orders")));
+    }
+
     public static void main(String[] args) {
         System.out.println("===== Section 6: ReentrantLock Examples =====");
+        // Contended synchronized blocks appear in the report next to the ProfiledLocks
+        LockProfiler.startMonitorProfiling(Duration.ofMillis(1));
 
         reentrantExample();
         tryLockExample();
         tryLockWithTimeoutExample();
         fairnessExample();
+        queueLockFairnessExample();
         lockInterruptiblyExample();
         conditionExample();
+        readMostlyExample();
+
+        System.out.println();
+        LockProfiler.stopMonitorProfiling();
+        LockProfiler.printReport(5);
 
         System.out.println("\n===== End of Examples =====");
     }
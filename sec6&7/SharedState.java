@@ -0,0 +1,134 @@
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+// Holder for read-mostly state such as configuration or routing tables.
+// Readers pass a function that extracts what they need; writers pass a
+// function that mutates the state. Readers never block each other:
+//
+//   stamped     - optimistic StampedLock read, validated afterwards and
+//                 retried under the read lock if a writer got in. Writes
+//                 mutate in place, so the reader may see a half-written
+//                 state and must only copy values out (no loops over
+//                 structures a writer could be resizing).
+//   copyOnWrite - writers copy the state, mutate the copy and publish it
+//                 through a volatile, at the cost of a copy per write.
+//                 A published snapshot is never written again by this
+//                 class, so readers may iterate or hold on to it, but
+//                 nothing stops a reader from mutating it and corrupting
+//                 every later copy. Pass a freezer (for a Map, e.g.
+//                 Collections::unmodifiableMap) to publish a read-only
+//                 view and make that an error instead.
+public interface SharedState<S> {
+
+    <R> R read(Function<? super S, ? extends R> reader);
+
+    void write(Consumer<? super S> writer);
+
+    // Reads that had to be redone under the read lock; 0 for copyOnWrite
+    long getOptimisticFailures();
+
+    static <S> SharedState<S> stamped(S state) {
+        return new Stamped<>(state);
+    }
+
+    static <S> SharedState<S> copyOnWrite(S state, UnaryOperator<S> copier) {
+        return new CopyOnWrite<>(state, copier, UnaryOperator.identity());
+    }
+
+    // The copier must return a mutable copy of a frozen snapshot
+    static <S> SharedState<S> copyOnWrite(S state, UnaryOperator<S> copier, UnaryOperator<S> freezer) {
+        return new CopyOnWrite<>(state, copier, freezer);
+    }
+
+    final class Stamped<S> implements SharedState<S> {
+        private final StampedLock lock = new StampedLock();
+        private final LongAdder optimisticFailures = new LongAdder();
+        private final S state;
+
+        Stamped(S state) {
+            this.state = state;
+        }
+
+        @Override
+        public <R> R read(Function<? super S, ? extends R> reader) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                R result = null;
+                try {
+                    result = reader.apply(state);
+                } catch (RuntimeException e) {
+                    // Possibly caused by a torn read; only rethrown if the stamp is still valid
+                    if (lock.validate(stamp)) {
+                        throw e;
+                    }
+                }
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+                optimisticFailures.increment();
+            }
+            stamp = lock.readLock();
+            try {
+                return reader.apply(state);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @Override
+        public void write(Consumer<? super S> writer) {
+            long stamp = lock.writeLock();
+            try {
+                writer.accept(state);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public long getOptimisticFailures() {
+            return optimisticFailures.sum();
+        }
+    }
+
+    final class CopyOnWrite<S> implements SharedState<S> {
+        private final UnaryOperator<S> copier;
+        private final UnaryOperator<S> freezer;
+        private final Object writeLock = new Object();
+        private volatile S snapshot;
+
+        CopyOnWrite(S state, UnaryOperator<S> copier, UnaryOperator<S> freezer) {
+            this.copier = copier;
+            this.freezer = freezer;
+            this.snapshot = freezer.apply(copier.apply(state));
+        }
+
+        @Override
+        public <R> R read(Function<? super S, ? extends R> reader) {
+            return reader.apply(snapshot);
+        }
+
+        // Writers are serialized so no update is lost between copy and publish
+        @Override
+        public void write(Consumer<? super S> writer) {
+            synchronized (writeLock) {
+                S copy = copier.apply(snapshot);
+                writer.accept(copy);
+                snapshot = freezer.apply(copy);
+            }
+        }
+
+        // The current state; read-only unless no freezer was given
+        public S snapshot() {
+            return snapshot;
+        }
+
+        @Override
+        public long getOptimisticFailures() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Completion handle for one batch submitted to MultiExecutor
+public class BatchHandle<T> {
+    private final AtomicReferenceArray<T> results;
+    private final AtomicReferenceArray<Throwable> failures;
+    private final CountDownLatch remaining;
+    private final AtomicInteger failedCount = new AtomicInteger();
+
+    BatchHandle(int size) {
+        this.results = new AtomicReferenceArray<>(size);
+        this.failures = new AtomicReferenceArray<>(size);
+        this.remaining = new CountDownLatch(size);
+    }
+
+    void complete(int index, T result) {
+        results.set(index, result);
+        remaining.countDown();
+    }
+
+    void fail(int index, Throwable failure) {
+        failures.set(index, failure);
+        failedCount.incrementAndGet();
+        remaining.countDown();
+    }
+
+    public int size() {
+        return results.length();
+    }
+
+    public boolean isDone() {
+        return remaining.getCount() == 0;
+    }
+
+    // Blocks until every task in the batch has finished
+    public BatchHandle<T> await() throws InterruptedException {
+        remaining.await();
+        return this;
+    }
+
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return remaining.await(timeout, unit);
+    }
+
+    public T getResult(int index) {
+        return results.get(index);
+    }
+
+    public Throwable getFailure(int index) {
+        return failures.get(index);
+    }
+
+    public boolean isFailed(int index) {
+        return failures.get(index) != null;
+    }
+
+    public int failedCount() {
+        return failedCount.get();
+    }
+
+    public List<T> results() {
+        List<T> list = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            list.add(results.get(i));
+        }
+        return list;
+    }
+
+    public Map<Integer, Throwable> failures() {
+        Map<Integer, Throwable> map = new TreeMap<>();
+        for (int i = 0; i < size(); i++) {
+            Throwable failure = failures.get(i);
+            if (failure != null) {
+                map.put(i, failure);
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,267 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Completion handle for one TaskGraph submitted to MultiExecutor, and the
+// bookkeeping that drives it. No thread ever waits for a dependency: a
+// task is handed to the executor only once all of its inputs are done, and
+// whichever thread finishes the last input makes it ready. Ready tasks
+// queue here, ranked by their remaining critical path, and at most
+// 'parallelism' of them are on the executor at a time, so the ranking
+// decides what runs next rather than the executor's FIFO queue.
+//
+// When a task fails or is cancelled, every task downstream of it is
+// cancelled with a CancellationException whose cause says why; tasks on
+// independent branches keep running.
+public class GraphHandle {
+
+    public enum State {
+        WAITING,
+        READY,
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+        CANCELLED
+    }
+
+    private static final State[] STATES = State.values();
+
+    private final TaskGraph graph;
+    private final List<TaskGraph.Node<?>> nodes;
+    private final Executor executor;
+    private final int parallelism;
+    private final int[][] successors;
+    private final long[] ranks;
+    private final AtomicIntegerArray states;
+    private final AtomicIntegerArray pendingInputs;
+    private final AtomicReferenceArray<Object> results;
+    private final AtomicReferenceArray<Throwable> failures;
+    private final CountDownLatch remaining;
+    private final PriorityQueue<Integer> ready;
+    private int running;
+
+    GraphHandle(TaskGraph graph, Executor executor, int parallelism) {
+        // Tasks added to the graph after this point belong to later submissions
+        this.nodes = List.copyOf(graph.nodes());
+        int size = nodes.size();
+        this.graph = graph;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.successors = graph.successors();
+        this.ranks = graph.ranks(successors);
+        this.states = new AtomicIntegerArray(size);
+        this.pendingInputs = new AtomicIntegerArray(size);
+        this.results = new AtomicReferenceArray<>(size);
+        this.failures = new AtomicReferenceArray<>(size);
+        this.remaining = new CountDownLatch(size);
+        // Longest remaining path first, then insertion order
+        this.ready = new PriorityQueue<>(Math.max(1, size), (a, b) ->
+            ranks[a] != ranks[b] ? Long.compare(ranks[b], ranks[a]) : Integer.compare(a, b));
+        for (int i = 0; i < size; i++) {
+            pendingInputs.set(i, nodes.get(i).dependencies.length);
+        }
+    }
+
+    void start() {
+        synchronized (this) {
+            for (int i = 0; i < nodes.size(); i++) {
+                if (pendingInputs.get(i) == 0) {
+                    states.set(i, State.READY.ordinal());
+                    ready.add(i);
+                }
+            }
+        }
+        dispatch();
+    }
+
+    // Moves ready tasks to the executor while fewer than 'parallelism' run
+    private void dispatch() {
+        List<Integer> launch = new ArrayList<>();
+        synchronized (this) {
+            while (running < parallelism && !ready.isEmpty()) {
+                int index = ready.poll();
+                if (transition(index, State.READY, State.RUNNING)) {
+                    running++;
+                    launch.add(index);
+                }
+            }
+        }
+        for (int index : launch) {
+            try {
+                executor.execute(() -> run(index));
+            } catch (RejectedExecutionException e) {
+                finish(index, State.FAILED, null, e);
+            }
+        }
+    }
+
+    private void run(int index) {
+        TaskGraph.Node<?> node = nodes.get(index);
+        try {
+            Object result = node.step.compute(new Inputs(node));
+            finish(index, State.SUCCEEDED, result, null);
+        } catch (Throwable t) {
+            finish(index, State.FAILED, null, t);
+        }
+    }
+
+    private void finish(int index, State state, Object result, Throwable failure) {
+        if (state == State.SUCCEEDED) {
+            results.set(index, result);
+        } else {
+            failures.set(index, failure);
+        }
+        states.set(index, state.ordinal());
+        remaining.countDown();
+        synchronized (this) {
+            running--;
+        }
+        for (int successor : successors[index]) {
+            if (state == State.SUCCEEDED) {
+                if (pendingInputs.decrementAndGet(successor) == 0
+                        && transition(successor, State.WAITING, State.READY)) {
+                    synchronized (this) {
+                        ready.add(successor);
+                    }
+                }
+            } else {
+                cancelDownstream(successor, upstreamFailed(nodes.get(index), failure));
+            }
+        }
+        dispatch();
+    }
+
+    private static CancellationException upstreamFailed(TaskGraph.Node<?> upstream, Throwable failure) {
+        CancellationException e = new CancellationException("upstream task '" + upstream.name + "' "
+            + (failure instanceof CancellationException ? "was cancelled" : "failed"));
+        e.initCause(failure);
+        return e;
+    }
+
+    // Cancels the task, if it has not started, and everything that depends on it
+    private void cancelDownstream(int index, CancellationException cause) {
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(index);
+        while (!pending.isEmpty()) {
+            int current = pending.pop();
+            if (transition(current, State.WAITING, State.CANCELLED)
+                    || transition(current, State.READY, State.CANCELLED)) {
+                failures.set(current, cause);
+                remaining.countDown();
+                for (int successor : successors[current]) {
+                    pending.push(successor);
+                }
+            }
+        }
+    }
+
+    private boolean transition(int index, State from, State to) {
+        return states.compareAndSet(index, from.ordinal(), to.ordinal());
+    }
+
+    private final class Inputs implements TaskGraph.Inputs {
+        private final TaskGraph.Node<?> node;
+
+        Inputs(TaskGraph.Node<?> node) {
+            this.node = node;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(TaskGraph.Node<T> dependency) {
+            for (TaskGraph.Node<?> declared : node.dependencies) {
+                if (declared == dependency) {
+                    return (T) results.get(dependency.index);
+                }
+            }
+            throw new IllegalArgumentException("'" + node.name + "' does not depend on '" + dependency.name + "'");
+        }
+    }
+
+    // Cancels every task that has not started yet; running tasks finish
+    public void cancel() {
+        CancellationException cause = new CancellationException("graph cancelled");
+        for (int i = 0; i < nodes.size(); i++) {
+            cancelDownstream(i, cause);
+        }
+    }
+
+    // Cancels one task, if it has not started, and everything downstream of it
+    public void cancel(TaskGraph.Node<?> node) {
+        checkNode(node);
+        cancelDownstream(node.index, new CancellationException("task '" + node.name + "' cancelled"));
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public boolean isDone() {
+        return remaining.getCount() == 0;
+    }
+
+    // Blocks until every task has succeeded, failed or been cancelled
+    public GraphHandle await() throws InterruptedException {
+        remaining.await();
+        return this;
+    }
+
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return remaining.await(timeout, unit);
+    }
+
+    public State getState(TaskGraph.Node<?> node) {
+        checkNode(node);
+        return STATES[states.get(node.index)];
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getResult(TaskGraph.Node<T> node) {
+        checkNode(node);
+        return (T) results.get(node.index);
+    }
+
+    public Throwable getFailure(TaskGraph.Node<?> node) {
+        checkNode(node);
+        return failures.get(node.index);
+    }
+
+    public int failedCount() {
+        return count(State.FAILED);
+    }
+
+    public int cancelledCount() {
+        return count(State.CANCELLED);
+    }
+
+    private int count(State state) {
+        int count = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            if (states.get(i) == state.ordinal()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Failed and cancelled tasks by name, in the order they were added
+    public Map<String, Throwable> failures() {
+        Map<String, Throwable> map = new LinkedHashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            Throwable failure = failures.get(i);
+            if (failure != null) {
+                map.put(nodes.get(i).name, failure);
+            }
+        }
+        return map;
+    }
+
+    private void checkNode(TaskGraph.Node<?> node) {
+        if (node.graph != graph) {
+            throw new IllegalArgumentException("'" + node.name + "' belongs to another graph");
+        }
+        if (node.index >= nodes.size()) {
+            throw new IllegalArgumentException("'" + node.name + "' was added after the graph was submitted");
+        }
+    }
+}
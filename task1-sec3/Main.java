@@ -1,14 +1,99 @@
+import java.time.Duration;
 import java.util.*;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
         List<Runnable> tasks = Arrays.asList(
             () -> System.out.println("Task 1 running"),
             () -> System.out.println("Task 2 running"),
-            () -> System.out.println("Task 3 running")
+            () -> System.out.println("Task 3 running"),
+            () -> { throw new IllegalStateException("Task 4 failed"); }
         );
 
-        MultiExecutor executor = new MultiExecutor(tasks);
-        executor.executeAll();
+        MultiExecutor executor = new MultiExecutor(tasks, 2);
+        BatchHandle<Void> batch = executor.executeAll().await();
+        System.out.println("Batch done: " + batch.size() + " tasks, " + batch.failedCount() + " failed");
+        batch.failures().forEach((index, failure) ->
+            System.out.println("Task " + (index + 1) + " failed: " + failure.getMessage()));
+        executor.shutdown();
+
+        taskGraphExample();
+        virtualThreadsExample();
+    }
+
+    // A small batch job as a DAG: each step starts as soon as its inputs are
+    // ready, and a failed validation cancels only the publish step below it
+    static void taskGraphExample() throws InterruptedException {
+        System.out.println("\n=== Task Graph ===");
+        TaskGraph graph = new TaskGraph();
+        TaskGraph.Node<List<Integer>> orders = graph.add("load orders", () -> {
+            sleep(300);
+            return List.of(120, 80, 45);
+        }).withCost(300);
+        TaskGraph.Node<Integer> customers = graph.add("load customers", () -> {
+            sleep(50);
+            return 2;
+        }).withCost(50);
+        TaskGraph.Node<Integer> revenue = graph.add("sum revenue", orders, list -> {
+            sleep(200);
+            return list.stream().mapToInt(Integer::intValue).sum();
+        }).withCost(200);
+        TaskGraph.Node<Integer> perCustomer = graph.add("revenue per customer", revenue, customers,
+            (total, count) -> total / count);
+        TaskGraph.Node<Boolean> validated = graph.add("validate customers", customers, count -> {
+            throw new IllegalStateException("customer table has " + count + " rows, expected at least 3");
+        });
+        TaskGraph.Node<String> published = graph.add("publish", inputs ->
+            "published " + inputs.get(perCustomer), perCustomer, validated);
+        TaskGraph.Node<String> report = graph.add("report", perCustomer, value -> "revenue per customer: " + value);
+
+        System.out.println("Critical path: " + String.join(" -> ", graph.criticalPath()));
+        MultiExecutor executor = new MultiExecutor(List.of(), 2);
+        long start = System.nanoTime();
+        GraphHandle handle = executor.submitGraph(graph).await();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        executor.shutdown();
+
+        System.out.println(handle.size() + " tasks done in " + elapsedMs + " ms, " + handle.failedCount()
+            + " failed, " + handle.cancelledCount() + " cancelled");
+        System.out.println(handle.getResult(report));
+        System.out.println("publish: " + handle.getState(published) + " (" + handle.getFailure(published).getMessage() + ")");
+        handle.failures().forEach((name, failure) ->
+            System.out.println("  " + name + ": " + failure.getMessage()));
+    }
+
+    // 100k blocking tasks on virtual threads; the synchronized ones pin their carrier
+    static void virtualThreadsExample() throws InterruptedException {
+        System.out.println("\n=== Virtual Thread Mode ===");
+        Object monitor = new Object();
+        List<Runnable> blockingTasks = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            blockingTasks.add(() -> sleep(1000));
+        }
+        for (int i = 0; i < 3; i++) {
+            blockingTasks.add(() -> {
+                synchronized (monitor) {
+                    sleep(50);
+                }
+            });
+        }
+
+        MultiExecutor executor = MultiExecutor.virtual(blockingTasks);
+        PinningMonitor pinning = executor.detectPinning(Duration.ofMillis(20));
+        long start = System.nanoTime();
+        BatchHandle<Void> batch = executor.executeAll().await();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        executor.shutdown();
+
+        System.out.println(batch.size() + " blocking tasks finished in " + elapsedMs + " ms, " + batch.failedCount() + " failed");
+        pinning.printReport();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,16 +1,137 @@
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class MultiExecutor {
     private List<Runnable> tasks;
+    private final ExecutionMode mode;
+    private final int parallelism;
+    private final ExecutorService pool;
+    private final Semaphore permits;
+    private PinningMonitor pinningMonitor;
 
     public MultiExecutor(List<Runnable> tasks) {
+        this(tasks, Runtime.getRuntime().availableProcessors());
+    }
+
+    public MultiExecutor(List<Runnable> tasks, int parallelism) {
+        this(tasks, parallelism, ExecutionMode.PLATFORM);
+    }
+
+    // In VIRTUAL mode every task gets its own virtual thread and the
+    // parallelism cap only limits how many run at once
+    public MultiExecutor(List<Runnable> tasks, int parallelism, ExecutionMode mode) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+        }
         this.tasks = tasks;
+        this.mode = mode;
+        this.parallelism = parallelism;
+
+        if (mode == ExecutionMode.VIRTUAL) {
+            this.pool = Executors.newThreadPerTaskExecutor(mode.threadFactory("MultiExecutor-virtual-"));
+            this.permits = parallelism == Integer.MAX_VALUE ? null : new Semaphore(parallelism);
+        } else {
+            // Workers are created on demand up to the cap and reused for every batch
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                parallelism,
+                parallelism,
+                30,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                mode.threadFactory("MultiExecutor-worker-")
+            );
+            executor.allowCoreThreadTimeOut(true);
+            this.pool = executor;
+            this.permits = null;
+        }
     }
 
-    public void executeAll() {
+    public static MultiExecutor virtual(List<Runnable> tasks) {
+        return new MultiExecutor(tasks, Integer.MAX_VALUE, ExecutionMode.VIRTUAL);
+    }
+
+    public BatchHandle<Void> executeAll() {
+        List<Callable<Void>> callables = new ArrayList<>(tasks.size());
         for (Runnable task : tasks) {
-            Thread thread = new Thread(task);
-            thread.start();
+            callables.add(() -> {
+                task.run();
+                return null;
+            });
+        }
+        return submitAll(callables);
+    }
+
+    public <T> BatchHandle<T> submitAll(List<? extends Callable<T>> batch) {
+        BatchHandle<T> handle = new BatchHandle<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            int index = i;
+            Callable<T> task = batch.get(i);
+            try {
+                pool.execute(() -> run(handle, index, task));
+            } catch (RejectedExecutionException e) {
+                handle.fail(index, e);
+            }
+        }
+        return handle;
+    }
+
+    // Runs every task of the graph once its dependencies have succeeded.
+    // The graph keeps at most 'parallelism' of its tasks on the pool, so
+    // it needs no permits and never parks a thread on a dependency.
+    public GraphHandle submitGraph(TaskGraph graph) {
+        GraphHandle handle = new GraphHandle(graph, pool, parallelism);
+        handle.start();
+        return handle;
+    }
+
+    private <T> void run(BatchHandle<T> handle, int index, Callable<T> task) {
+        try {
+            if (permits != null) {
+                permits.acquire();
+            }
+            try {
+                handle.complete(index, task.call());
+            } finally {
+                if (permits != null) {
+                    permits.release();
+                }
+            }
+        } catch (Throwable t) {
+            handle.fail(index, t);
+        }
+    }
+
+    // Starts recording virtual threads that block while pinned to their carrier
+    // for longer than the threshold; stopped again by shutdown()
+    public synchronized PinningMonitor detectPinning(Duration threshold) {
+        if (mode != ExecutionMode.VIRTUAL) {
+            throw new IllegalStateException("Pinning only applies to VIRTUAL mode");
+        }
+        if (pinningMonitor == null) {
+            pinningMonitor = new PinningMonitor(threshold);
         }
+        return pinningMonitor;
+    }
+
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+        synchronized (this) {
+            if (pinningMonitor != null) {
+                pinningMonitor.close();
+            }
+        }
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return pool.awaitTermination(timeout, unit);
     }
 }
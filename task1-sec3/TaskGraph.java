@@ -0,0 +1,162 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+// Dependent tasks declared as a DAG, for MultiExecutor.submitGraph(). Each
+// task names the tasks whose results it needs and gets them through
+// Inputs once they are done. A task can only depend on tasks added before
+// it, so the graph is acyclic by construction and insertion order is a
+// valid topological order.
+//
+// A cost estimate (default 1) can be set per task; the executor starts
+// ready tasks with the longest remaining path to a sink first, so the
+// critical path is never left waiting behind short side branches.
+public class TaskGraph {
+    private final List<Node<?>> nodes = new ArrayList<>();
+    // Names are unique so results and failures can be reported by name
+    private final Set<String> names = new HashSet<>();
+
+    @FunctionalInterface
+    public interface Step<T> {
+        T compute(Inputs inputs) throws Exception;
+    }
+
+    // Results of the task's declared dependencies
+    public interface Inputs {
+        <T> T get(Node<T> dependency);
+    }
+
+    // Handle for one task and its result type
+    public static final class Node<T> {
+        final TaskGraph graph;
+        final int index;
+        final String name;
+        final Step<T> step;
+        final Node<?>[] dependencies;
+        long cost = 1;
+
+        private Node(TaskGraph graph, int index, String name, Step<T> step, Node<?>[] dependencies) {
+            this.graph = graph;
+            this.index = index;
+            this.name = name;
+            this.step = step;
+            this.dependencies = dependencies;
+        }
+
+        // Relative run time, used only to rank paths; applies to later submissions
+        public Node<T> withCost(long cost) {
+            if (cost < 0) {
+                throw new IllegalArgumentException("cost must not be negative: " + cost);
+            }
+            this.cost = cost;
+            return this;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    public <T> Node<T> add(String name, Step<T> step, Node<?>... dependencies) {
+        Node<?>[] inputs = dependencies.clone();
+        for (Node<?> dependency : inputs) {
+            if (dependency.graph != this) {
+                throw new IllegalArgumentException("'" + dependency.name + "' belongs to another graph");
+            }
+        }
+        if (!names.add(name)) {
+            throw new IllegalArgumentException("a task named '" + name + "' was already added");
+        }
+        Node<T> node = new Node<>(this, nodes.size(), name, step, inputs);
+        nodes.add(node);
+        return node;
+    }
+
+    public <T> Node<T> add(String name, Callable<T> task) {
+        return add(name, inputs -> task.call());
+    }
+
+    public <A, T> Node<T> add(String name, Node<A> input, Function<? super A, ? extends T> task) {
+        return add(name, inputs -> task.apply(inputs.get(input)), input);
+    }
+
+    public <A, B, T> Node<T> add(String name, Node<A> first, Node<B> second,
+                                 BiFunction<? super A, ? super B, ? extends T> task) {
+        return add(name, inputs -> task.apply(inputs.get(first), inputs.get(second)), first, second);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    List<Node<?>> nodes() {
+        return nodes;
+    }
+
+    // Task indexes that depend directly on each task
+    int[][] successors() {
+        int[] counts = new int[nodes.size()];
+        for (Node<?> node : nodes) {
+            for (Node<?> dependency : node.dependencies) {
+                counts[dependency.index]++;
+            }
+        }
+        int[][] successors = new int[nodes.size()][];
+        for (int i = 0; i < successors.length; i++) {
+            successors[i] = new int[counts[i]];
+            counts[i] = 0;
+        }
+        for (Node<?> node : nodes) {
+            for (Node<?> dependency : node.dependencies) {
+                successors[dependency.index][counts[dependency.index]++] = node.index;
+            }
+        }
+        return successors;
+    }
+
+    // Per task: its cost plus the most expensive path through its successors.
+    // Walking backwards in insertion order sees every successor first.
+    long[] ranks(int[][] successors) {
+        long[] ranks = new long[nodes.size()];
+        for (int i = ranks.length - 1; i >= 0; i--) {
+            long longest = 0;
+            for (int successor : successors[i]) {
+                longest = Math.max(longest, ranks[successor]);
+            }
+            ranks[i] = nodes.get(i).cost + longest;
+        }
+        return ranks;
+    }
+
+    // The most expensive chain of tasks from a source to a sink
+    public List<String> criticalPath() {
+        List<String> path = new ArrayList<>();
+        if (nodes.isEmpty()) {
+            return path;
+        }
+        int[][] successors = successors();
+        long[] ranks = ranks(successors);
+        int current = 0;
+        for (int i = 1; i < ranks.length; i++) {
+            if (nodes.get(i).dependencies.length == 0 && ranks[i] > ranks[current]) {
+                current = i;
+            }
+        }
+        while (current >= 0) {
+            path.add(nodes.get(current).name);
+            int next = -1;
+            for (int successor : successors[current]) {
+                if (next < 0 || ranks[successor] > ranks[next]) {
+                    next = successor;
+                }
+            }
+            current = next;
+        }
+        return path;
+    }
+}
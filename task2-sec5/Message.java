@@ -0,0 +1,82 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Message with primitive fields only, meant to be recycled through a
+// MessagePool rather than allocated per send. Fields are plain: the buffer
+// lock orders the producer's writes before the consumer's reads, and the
+// pool does the same when the message comes back. Only the in-pool flag is
+// updated atomically, so two racing release() calls cannot both succeed.
+public final class Message {
+    public static final int PAYLOAD_SIZE = 64;
+    private static final VarHandle IN_POOL;
+
+    static {
+        try {
+            IN_POOL = MethodHandles.lookup().findVarHandle(Message.class, "inPool", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private int producerId;
+    private long sequence;
+    private long timestampNanos;
+    private final byte[] payload = new byte[PAYLOAD_SIZE];
+    private int payloadLength;
+    private volatile boolean inPool;
+
+    Message() {
+    }
+
+    // Pool bookkeeping; false if the message already had that state
+    boolean markInPool() {
+        return IN_POOL.compareAndSet(this, false, true);
+    }
+
+    boolean markInUse() {
+        return IN_POOL.compareAndSet(this, true, false);
+    }
+
+    // Stamps the message with the current time; the payload is left as is
+    public Message set(int producerId, long sequence) {
+        this.producerId = producerId;
+        this.sequence = sequence;
+        this.timestampNanos = System.nanoTime();
+        this.payloadLength = 0;
+        return this;
+    }
+
+    public int getProducerId() {
+        return producerId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    // Backing array, writable by the producer; see setPayloadLength
+    public byte[] payload() {
+        return payload;
+    }
+
+    public int getPayloadLength() {
+        return payloadLength;
+    }
+
+    public void setPayloadLength(int length) {
+        if (length < 0 || length > PAYLOAD_SIZE) {
+            throw new IllegalArgumentException("payload length must be 0.." + PAYLOAD_SIZE + ": " + length);
+        }
+        this.payloadLength = length;
+    }
+
+    // Allocates; only for printing
+    @Override
+    public String toString() {
+        return "Msg-" + sequence + "-from-Producer-" + producerId;
+    }
+}
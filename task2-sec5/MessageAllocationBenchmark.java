@@ -0,0 +1,118 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+// Heap allocated per message on the producer and consumer threads: a new
+// String per message (what ProducerConsumerExample used to do) against
+// pooled Messages. Measured with the per-thread allocation counter, after
+// a warm-up share of the messages so JIT and buffer growth are excluded.
+// Run: java MessageAllocationBenchmark [messages]
+public class MessageAllocationBenchmark {
+    private static final int CAPACITY = 256;
+    private static final int BATCH_SIZE = 64;
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    interface Pipeline {
+        void produce(int sequence, List<Object> batch) throws InterruptedException;
+
+        void consume(List<Object> batch);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        System.out.println("=== Allocation per message, 1 producer, 1 consumer, " + messages + " messages ===");
+
+        Pipeline strings = new Pipeline() {
+            public void produce(int sequence, List<Object> batch) {
+                batch.add("Msg-" + sequence + "-from-Producer-1");
+            }
+
+            public void consume(List<Object> batch) {
+            }
+        };
+        MessagePool pool = new MessagePool(CAPACITY + 2 * BATCH_SIZE);
+        Pipeline pooled = new Pipeline() {
+            public void produce(int sequence, List<Object> batch) throws InterruptedException {
+                Message message = pool.acquire().set(1, sequence);
+                message.payload()[0] = (byte) sequence;
+                message.setPayloadLength(1);
+                batch.add(message);
+            }
+
+            public void consume(List<Object> batch) {
+                for (Object message : batch) {
+                    pool.release((Message) message);
+                }
+            }
+        };
+
+        for (int round = 0; round < 2; round++) {
+            boolean print = round == 1;
+            run("new String", strings, messages, print);
+            run("pooled     ", pooled, messages, print);
+        }
+    }
+
+    private static void run(String label, Pipeline pipeline, int messages, boolean print)
+            throws InterruptedException {
+        MessageBuffer<Object> buffer = new MessageBuffer<>(CAPACITY);
+        int warmup = messages / 10;
+        long[] producerBytes = new long[1];
+        long[] consumerBytes = new long[1];
+
+        Thread producer = new Thread(() -> {
+            List<Object> batch = new ArrayList<>(BATCH_SIZE);
+            long start = 0;
+            try {
+                for (int n = 0; n < messages; n++) {
+                    if (n == warmup) {
+                        start = THREADS.getCurrentThreadAllocatedBytes();
+                    }
+                    pipeline.produce(n, batch);
+                    if (batch.size() == BATCH_SIZE) {
+                        buffer.putAll(batch);
+                        batch.clear();
+                    }
+                }
+                buffer.putAll(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            producerBytes[0] = THREADS.getCurrentThreadAllocatedBytes() - start;
+        });
+        Thread consumer = new Thread(() -> {
+            List<Object> batch = new ArrayList<>(BATCH_SIZE);
+            long consumed = 0;
+            long start = 0;
+            try {
+                while (buffer.drainTo(batch, BATCH_SIZE) > 0) {
+                    if (consumed < warmup && consumed + batch.size() >= warmup) {
+                        start = THREADS.getCurrentThreadAllocatedBytes();
+                    }
+                    consumed += batch.size();
+                    pipeline.consume(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            consumerBytes[0] = THREADS.getCurrentThreadAllocatedBytes() - start;
+        });
+
+        long begin = System.nanoTime();
+        consumer.start();
+        producer.start();
+        producer.join();
+        buffer.close();
+        consumer.join();
+        long nanos = System.nanoTime() - begin;
+
+        if (print) {
+            int measured = messages - warmup;
+            System.out.printf("%s: %,12.0f msg/s | producer %7.2f B/msg | consumer %7.2f B/msg%n",
+                    label, messages / (nanos / 1e9),
+                    (double) producerBytes[0] / measured, (double) consumerBytes[0] / measured);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Bounded buffer with batch operations. Producers and consumers wait on
+// separate conditions and are woken one at a time, so a put never wakes
+// another producer and a take never wakes another consumer.
+public class MessageBuffer<T> {
+    private final Object[] items;
+    private int head = 0;
+    private int count = 0;
+    private boolean closed = false;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+
+    // Statistics, only updated while holding the lock
+    private long lockAcquisitions = 0;
+    private long waits = 0;
+    private long messagesIn = 0;
+    private long messagesOut = 0;
+
+    public MessageBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+        this.items = new Object[capacity];
+    }
+
+    // Single-item paths do not allocate, so a steady stream of pooled
+    // messages through put/take creates no garbage. Null is rejected: take()
+    // uses it to report a closed buffer.
+    public void put(T item) throws InterruptedException {
+        if (item == null) {
+            throw new NullPointerException("null items are not allowed");
+        }
+        lock.lockInterruptibly();
+        try {
+            awaitSpace();
+            insert(item);
+            signalAfterPut();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Inserts the batch in order, taking as many items as fit on each lock
+    // acquisition, and returns how many went in. Items become visible to
+    // consumers as they are inserted, so a batch can end up partly in the
+    // buffer: if the buffer is closed, or the thread is interrupted while
+    // waiting for space, after some items were inserted, the count so far is
+    // returned (with the interrupt status set again) and the rest of the batch
+    // is left to the caller. The exceptions are only thrown when nothing was
+    // inserted.
+    public int putAll(List<? extends T> batch) throws InterruptedException {
+        // Checked up front so a bad batch inserts nothing
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.get(i) == null) {
+                throw new NullPointerException("null items are not allowed");
+            }
+        }
+        int next = 0;
+        try {
+            while (next < batch.size()) {
+                lock.lockInterruptibly();
+                try {
+                    awaitSpace();
+                    while (count < items.length && next < batch.size()) {
+                        insert(batch.get(next++));
+                    }
+                    signalAfterPut();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (InterruptedException e) {
+            if (next == 0) {
+                throw e;
+            }
+            Thread.currentThread().interrupt();
+        } catch (IllegalStateException e) {
+            if (next == 0) {
+                throw e;
+            }
+        }
+        return next;
+    }
+
+    private void awaitSpace() throws InterruptedException {
+        lockAcquisitions++;
+        while (count == items.length && !closed) {
+            waits++;
+            notFull.await();
+        }
+        if (closed) {
+            throw new IllegalStateException("Buffer is closed");
+        }
+    }
+
+    private void insert(T item) {
+        items[(head + count) % items.length] = item;
+        count++;
+        messagesIn++;
+    }
+
+    private void signalAfterPut() {
+        notEmpty.signal();
+        if (count < items.length) {
+            // Still room: pass the wake-up on to the next waiting producer
+            notFull.signal();
+        }
+    }
+
+    // Returns null once the buffer is closed and empty
+    @SuppressWarnings("unchecked")
+    public T take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            awaitItems();
+            if (count == 0) {
+                return null;
+            }
+            T item = (T) items[head];
+            remove();
+            messagesOut++;
+            signalAfterTake(1);
+            return item;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Waits for at least one item, then moves up to max items into target.
+    // Returns 0 only once the buffer is closed and empty.
+    @SuppressWarnings("unchecked")
+    public int drainTo(Collection<? super T> target, int max) throws InterruptedException {
+        if (max < 1) {
+            // 0 would be indistinguishable from "closed and empty"
+            throw new IllegalArgumentException("max must be at least 1: " + max);
+        }
+        lock.lockInterruptibly();
+        try {
+            awaitItems();
+            int drained = 0;
+            while (count > 0 && drained < max) {
+                target.add((T) items[head]);
+                remove();
+                drained++;
+            }
+            messagesOut += drained;
+            signalAfterTake(drained);
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitItems() throws InterruptedException {
+        lockAcquisitions++;
+        while (count == 0 && !closed) {
+            waits++;
+            notEmpty.await();
+        }
+    }
+
+    private void remove() {
+        items[head] = null;
+        head = (head + 1) % items.length;
+        count--;
+    }
+
+    private void signalAfterTake(int taken) {
+        if (taken > 0) {
+            notFull.signal();
+        }
+        if (count > 0) {
+            // Items left over: pass the wake-up on to the next waiting consumer
+            notEmpty.signal();
+        }
+    }
+
+    // Wakes every waiter; consumers finish draining, producers fail
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int capacity() {
+        return items.length;
+    }
+
+    public long getLockAcquisitions() {
+        lock.lock();
+        try {
+            return lockAcquisitions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getWaits() {
+        lock.lock();
+        try {
+            return waits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getStats() {
+        lock.lock();
+        try {
+            double perMessage = messagesOut == 0 ? 0 : (double) lockAcquisitions / (messagesIn + messagesOut);
+            return String.format("in=%d out=%d lockAcquisitions=%d (%.3f per message op) waits=%d",
+                    messagesIn, messagesOut, lockAcquisitions, perMessage, waits);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Compares one-message put/take against putAll/drainTo on the same buffer,
+// without sleeps. Run: java MessageBufferBenchmark [messages]
+public class MessageBufferBenchmark {
+    private static final int CAPACITY = 256;
+    private static final int PRODUCERS = 2;
+    private static final int CONSUMERS = 2;
+    private static final int BATCH_SIZE = 64;
+
+    public static void main(String[] args) throws InterruptedException {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.println("=== MessageBuffer: " + PRODUCERS + " producers, " + CONSUMERS + " consumers, "
+                + messages + " messages ===");
+
+        run(false, messages / 4);
+        run(true, messages / 4);
+        report("single put/take", run(false, messages), messages);
+        report("putAll/drainTo ", run(true, messages), messages);
+    }
+
+    private static void report(String label, Result result, int messages) {
+        System.out.printf("%s: %,12.0f msg/s | %.3f lock acquisitions/msg | %.3f waits/msg%n",
+                label, messages / (result.nanos / 1e9),
+                (double) result.lockAcquisitions / messages, (double) result.waits / messages);
+    }
+
+    private static class Result {
+        long nanos;
+        long lockAcquisitions;
+        long waits;
+    }
+
+    private static Result run(boolean batched, int messages) throws InterruptedException {
+        MessageBuffer<Integer> buffer = new MessageBuffer<>(CAPACITY);
+        int perProducer = messages / PRODUCERS;
+        Thread[] producers = new Thread[PRODUCERS];
+        Thread[] consumers = new Thread[CONSUMERS];
+
+        for (int i = 0; i < PRODUCERS; i++) {
+            producers[i] = new Thread(() -> {
+                List<Integer> batch = new ArrayList<>(BATCH_SIZE);
+                try {
+                    for (int n = 0; n < perProducer; n++) {
+                        if (!batched) {
+                            buffer.put(n & 127);
+                            continue;
+                        }
+                        batch.add(n & 127);
+                        if (batch.size() == BATCH_SIZE) {
+                            buffer.putAll(batch);
+                            batch.clear();
+                        }
+                    }
+                    buffer.putAll(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        for (int i = 0; i < CONSUMERS; i++) {
+            consumers[i] = new Thread(() -> {
+                List<Integer> batch = new ArrayList<>(BATCH_SIZE);
+                try {
+                    if (batched) {
+                        while (buffer.drainTo(batch, BATCH_SIZE) > 0) {
+                            batch.clear();
+                        }
+                    } else {
+                        while (buffer.take() != null) {
+                            // drain until closed
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread t : consumers) {
+            t.start();
+        }
+        for (Thread t : producers) {
+            t.start();
+        }
+        for (Thread t : producers) {
+            t.join();
+        }
+        buffer.close();
+        for (Thread t : consumers) {
+            t.join();
+        }
+
+        Result result = new Result();
+        result.nanos = System.nanoTime() - start;
+        result.lockAcquisitions = buffer.getLockAcquisitions();
+        result.waits = buffer.getWaits();
+        return result;
+    }
+}
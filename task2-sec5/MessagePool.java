@@ -0,0 +1,57 @@
+import java.util.concurrent.ArrayBlockingQueue;
+
+// Fixed set of Messages created up front. Producers acquire() one, fill
+// it in and send it; the consumer release()s it when done. acquire() blocks
+// while every message is in flight, which also bounds memory. Size the pool
+// for the buffer capacity plus whatever producers and consumers hold in
+// their own batches. Releasing a message twice throws instead of letting
+// two producers end up sharing it.
+public class MessagePool {
+    private final ArrayBlockingQueue<Message> free;
+    private final int size;
+
+    public MessagePool(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("pool size must be at least 1: " + size);
+        }
+        this.size = size;
+        this.free = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            Message message = new Message();
+            message.markInPool();
+            free.add(message);
+        }
+    }
+
+    public Message acquire() throws InterruptedException {
+        Message message = free.take();
+        message.markInUse();
+        return message;
+    }
+
+    // null if every message is in use
+    public Message tryAcquire() {
+        Message message = free.poll();
+        if (message != null) {
+            message.markInUse();
+        }
+        return message;
+    }
+
+    public void release(Message message) {
+        if (!message.markInPool()) {
+            throw new IllegalStateException("message released twice: " + message);
+        }
+        if (!free.offer(message)) {
+            throw new IllegalStateException("more messages released than acquired");
+        }
+    }
+
+    public int available() {
+        return free.size();
+    }
+
+    public int size() {
+        return size;
+    }
+}
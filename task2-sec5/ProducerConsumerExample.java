@@ -1,13 +1,18 @@
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ProducerConsumerExample {
-    // Shared buffer between all threads
-    private final Queue<String> buffer = new LinkedList<>();
     private final int BUFFER_CAPACITY = 5;
     private final int PRODUCER_COUNT = 2;
     private final int CONSUMER_COUNT = 2;
     private final int MESSAGES_PER_PRODUCER = 10;
+    private final int PRODUCER_BATCH_SIZE = 2;
+    private final int CONSUMER_BATCH_SIZE = BUFFER_CAPACITY;
+    // Shared buffer between all threads
+    private final MessageBuffer<Message> buffer = new MessageBuffer<>(BUFFER_CAPACITY);
+    // Every message that can be in flight at once: in the buffer or in a producer or consumer batch
+    private final MessagePool pool = new MessagePool(
+            BUFFER_CAPACITY + PRODUCER_COUNT * PRODUCER_BATCH_SIZE + CONSUMER_COUNT * CONSUMER_BATCH_SIZE);
     
     public static void main(String[] args) {
         ProducerConsumerExample example = new ProducerConsumerExample();
@@ -23,7 +28,7 @@ public class ProducerConsumerExample {
         // Create and start producers
         Thread[] producers = new Thread[PRODUCER_COUNT];
         for (int i = 0; i < PRODUCER_COUNT; i++) {
-            producers[i] = new Thread(new Producer(), "Producer-" + (i + 1));
+            producers[i] = new Thread(new Producer(i + 1), "Producer-" + (i + 1));
             producers[i].start();
         }
         
@@ -43,13 +48,8 @@ public class ProducerConsumerExample {
             }
         }
         
-        // Add poison pills to stop consumers
-        synchronized (buffer) {
-            for (int i = 0; i < CONSUMER_COUNT; i++) {
-                buffer.add("POISON_PILL");
-            }
-            buffer.notifyAll();
-        }
+        // Close the buffer so consumers stop once it is drained
+        buffer.close();
         
         // Wait for all consumers to finish
         for (Thread consumer : consumers) {
@@ -62,35 +62,47 @@ public class ProducerConsumerExample {
         
         System.out.println("\n=== Simulation Completed ===");
         System.out.println("Final buffer size: " + buffer.size());
+        System.out.println("Buffer stats: " + buffer.getStats());
+        System.out.println("Pooled messages available: " + pool.available() + "/" + pool.size());
     }
     
     // Producer class
     class Producer implements Runnable {
+        private final int producerId;
         private int messageCount = 0;
         
+        Producer(int producerId) {
+            this.producerId = producerId;
+        }
+        
         @Override
         public void run() {
             String producerName = Thread.currentThread().getName();
             
+            List<Message> batch = new ArrayList<>(PRODUCER_BATCH_SIZE);
+            
             try {
-                for (int i = 0; i < MESSAGES_PER_PRODUCER; i++) {
-                    String message = "Msg-" + (++messageCount) + "-from-" + producerName;
+                while (messageCount < MESSAGES_PER_PRODUCER) {
+                    batch.clear();
+                    while (batch.size() < PRODUCER_BATCH_SIZE && messageCount < MESSAGES_PER_PRODUCER) {
+                        // Recycled message instead of a new String per send
+                        batch.add(pool.acquire().set(producerId, ++messageCount));
+                    }
                     
-                    synchronized (buffer) {
-                        // Wait if buffer is full
-                        while (buffer.size() >= BUFFER_CAPACITY) {
-                            System.out.println(producerName + " waiting - Buffer FULL (" + buffer.size() + "/" + BUFFER_CAPACITY + ")");
-                            buffer.wait();
+                    // Rendered before sending: once consumed, the messages go back to the pool and get reused
+                    String produced = batch.toString();
+                    // Blocks while the buffer is full, one lock acquisition per batch
+                    int sent = buffer.putAll(batch);
+                    if (sent < batch.size()) {
+                        // Interrupted partway through; the rest never reached a consumer
+                        for (Message unsent : batch.subList(sent, batch.size())) {
+                            pool.release(unsent);
                         }
-                        
-                        // Add message to buffer
-                        buffer.add(message);
-                        System.out.println(producerName + " PRODUCED: " + message + 
-                                         " [Buffer: " + buffer.size() + "/" + BUFFER_CAPACITY + "]");
-                        
-                        // Notify waiting consumers
-                        buffer.notifyAll();
+                        System.out.println(producerName + " interrupted after sending " + sent + " of " + batch.size() + " messages");
+                        return;
                     }
+                    System.out.println(producerName + " PRODUCED: " + produced + 
+                                     " [Buffer: " + buffer.size() + "/" + BUFFER_CAPACITY + "]");
                     
                     // Simulate production time
                     Thread.sleep((int)(Math.random() * 500) + 100);
@@ -111,39 +123,25 @@ public class ProducerConsumerExample {
         public void run() {
             String consumerName = Thread.currentThread().getName();
             int messagesConsumed = 0;
+            List<Message> batch = new ArrayList<>(CONSUMER_BATCH_SIZE);
             
             try {
-                while (true) {
-                    String message;
-                    
-                    synchronized (buffer) {
-                        // Wait if buffer is empty
-                        while (buffer.isEmpty()) {
-                            System.out.println(consumerName + " waiting - Buffer EMPTY");
-                            buffer.wait();
-                        }
-                        
-                        // Get message from buffer
-                        message = buffer.poll();
-                        
-                        // Check for poison pill (termination signal)
-                        if ("POISON_PILL".equals(message)) {
-                            System.out.println(consumerName + " received POISON_PILL - Stopping");
-                            break;
-                        }
-                        
-                        messagesConsumed++;
-                        System.out.println(consumerName + " CONSUMED: " + message + 
-                                         " [Buffer: " + buffer.size() + "/" + BUFFER_CAPACITY + "]");
-                        
-                        // Notify waiting producers
-                        buffer.notifyAll();
+                // Takes everything available (up to the batch size) per lock acquisition;
+                // 0 means the buffer was closed and drained
+                while (buffer.drainTo(batch, CONSUMER_BATCH_SIZE) > 0) {
+                    messagesConsumed += batch.size();
+                    System.out.println(consumerName + " CONSUMED: " + batch + 
+                                     " [Buffer: " + buffer.size() + "/" + BUFFER_CAPACITY + "]");
+                    for (Message message : batch) {
+                        pool.release(message);
                     }
+                    batch.clear();
                     
                     // Simulate consumption/processing time
                     Thread.sleep((int)(Math.random() * 800) + 200);
                 }
                 
+                System.out.println(consumerName + " saw buffer closed - Stopping");
                 System.out.println(consumerName + " finished - Consumed " + messagesConsumed + " messages");
                 
             } catch (InterruptedException e) {
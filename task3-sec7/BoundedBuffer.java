@@ -0,0 +1,17 @@
+// Fixed-capacity buffer shared between producer and consumer threads
+public interface BoundedBuffer<T> {
+    // Blocks while the buffer is full
+    void put(T item) throws InterruptedException;
+
+    // Blocks while the buffer is empty
+    T take() throws InterruptedException;
+
+    // Non-blocking variants, false / null when they cannot proceed
+    boolean offer(T item);
+
+    T poll();
+
+    int size();
+
+    int capacity();
+}
@@ -0,0 +1,78 @@
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+
+// A stage between two publishers: receives from upstream, maps, and
+// republishes through its own buffer. It only requests as many items from
+// upstream as it has free buffer slots, so backpressure from downstream
+// subscribers travels up the chain without any stage blocking a thread.
+class BufferProcessor<T, R> extends BufferPublisher<R> implements Flow.Processor<T, R> {
+    private final Function<? super T, ? extends R> mapper;
+    private final int capacity;
+    private Flow.Subscription upstream;
+    // Requested from upstream and not yet received; guarded by this
+    private long outstanding;
+
+    BufferProcessor(BoundedBuffer<R> buffer, Executor executor, Function<? super T, ? extends R> mapper) {
+        super(buffer, executor);
+        this.mapper = mapper;
+        this.capacity = buffer.capacity();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        synchronized (this) {
+            if (upstream != null) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+        }
+        requestUpstream();
+    }
+
+    @Override
+    public void onNext(T item) {
+        R mapped;
+        try {
+            mapped = mapper.apply(item);
+        } catch (RuntimeException e) {
+            upstream.cancel();
+            closeExceptionally(e);
+            return;
+        }
+        synchronized (this) {
+            outstanding--;
+            if (!submit(mapped)) {
+                upstream.cancel();
+                closeExceptionally(new IllegalStateException("upstream sent more items than requested"));
+            }
+        }
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        closeExceptionally(error);
+    }
+
+    @Override
+    public void onComplete() {
+        close();
+    }
+
+    @Override
+    protected void onSpaceFreed() {
+        requestUpstream();
+    }
+
+    private synchronized void requestUpstream() {
+        if (upstream == null || isClosed()) {
+            return;
+        }
+        long free = capacity - getBuffered() - outstanding;
+        if (free > 0) {
+            outstanding += free;
+            upstream.request(free);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Flow.Publisher over a BoundedBuffer. Producers submit() without blocking:
+// a full buffer returns false instead of parking the thread, and
+// getDemand() tells them how much the subscribers have asked for but not
+// yet received. Subscribers compete for items like consumers on a shared
+// queue: each item goes to one subscriber that has outstanding demand.
+//
+// Delivery runs as a drain loop on the executor. At most one drain runs at
+// a time, so signals to subscribers are never concurrent and no thread
+// waits when there is nothing to deliver.
+class BufferPublisher<T> implements Flow.Publisher<T>, AutoCloseable {
+    private final BoundedBuffer<T> buffer;
+    private final Executor executor;
+    private final List<BufferSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final List<Runnable> demandListeners = new CopyOnWriteArrayList<>();
+    // Drain requests not yet handled; the thread that moves it off 0 runs the drain
+    private final AtomicInteger pendingDrains = new AtomicInteger();
+    // Submits hold the read lock across the closed check and the offer;
+    // closing takes the write lock, so once the drain sees closed every
+    // accepted item is already in the buffer
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+    private volatile Throwable failure;
+    // Only used inside the drain loop
+    private int nextSubscriber;
+
+    class BufferSubscription implements Flow.Subscription {
+        final Flow.Subscriber<? super T> subscriber;
+        final AtomicLong requested = new AtomicLong();
+        // Set once onSubscribe has returned, so onNext cannot overlap it
+        volatile boolean ready;
+        volatile boolean cancelled;
+        volatile Throwable badRequest;
+
+        BufferSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = new IllegalArgumentException("request must be positive: " + n);
+            } else {
+                requested.accumulateAndGet(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+                for (Runnable listener : demandListeners) {
+                    listener.run();
+                }
+            }
+            signalDrain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            signalDrain();
+        }
+
+        boolean take() {
+            return requested.getAndUpdate(r -> r == Long.MAX_VALUE || r == 0 ? r : r - 1) > 0;
+        }
+    }
+
+    BufferPublisher(BoundedBuffer<T> buffer) {
+        this(buffer, ForkJoinPool.commonPool());
+    }
+
+    BufferPublisher(BoundedBuffer<T> buffer, Executor executor) {
+        this.buffer = buffer;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        BufferSubscription subscription = new BufferSubscription(subscriber);
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        subscription.ready = true;
+        signalDrain();
+    }
+
+    // Hands the item to the buffer; false if it is full, in which case the
+    // caller should hold on to it until getDemand() or onDemand() says otherwise
+    public boolean submit(T item) {
+        boolean accepted;
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("publisher is closed");
+            }
+            accepted = buffer.offer(item);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        if (accepted) {
+            signalDrain();
+        }
+        return accepted;
+    }
+
+    // Items requested by subscribers beyond what is already buffered
+    public long getDemand() {
+        long demand = 0;
+        for (BufferSubscription subscription : subscriptions) {
+            long requested = subscription.requested.get();
+            if (requested == Long.MAX_VALUE) {
+                return Long.MAX_VALUE;
+            }
+            demand += requested;
+        }
+        return Math.max(0, demand - buffer.size());
+    }
+
+    // Runs on the requesting thread whenever a subscriber asks for more
+    public void onDemand(Runnable listener) {
+        demandListeners.add(listener);
+    }
+
+    public int getBuffered() {
+        return buffer.size();
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    // Subscribers complete once the items already buffered are delivered
+    @Override
+    public void close() {
+        markClosed();
+        signalDrain();
+    }
+
+    public void closeExceptionally(Throwable error) {
+        failure = error;
+        markClosed();
+        signalDrain();
+    }
+
+    private void markClosed() {
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // Called from the drain loop after items left the buffer
+    protected void onSpaceFreed() {
+    }
+
+    final void signalDrain() {
+        if (pendingDrains.getAndIncrement() == 0) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        int missed = 1;
+        do {
+            deliver();
+            missed = pendingDrains.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void deliver() {
+        for (BufferSubscription subscription : subscriptions) {
+            if (subscription.ready && subscription.badRequest != null) {
+                subscriptions.remove(subscription);
+                subscription.subscriber.onError(subscription.badRequest);
+            }
+        }
+        Throwable error = failure;
+        if (error != null) {
+            // Fail fast: buffered items are dropped
+            completeAll(error);
+            return;
+        }
+
+        int delivered = 0;
+        BufferSubscription target;
+        while ((target = nextWithDemand()) != null) {
+            T item = buffer.poll();
+            if (item == null) {
+                // Demand was taken but there was nothing to give; hand it back
+                target.requested.accumulateAndGet(1, (r, one) -> r == Long.MAX_VALUE ? r : r + one);
+                break;
+            }
+            delivered++;
+            try {
+                target.subscriber.onNext(item);
+            } catch (Throwable t) {
+                // A throwing subscriber breaks the Flow contract; drop it
+                target.cancel();
+                target.subscriber.onError(t);
+            }
+        }
+        if (delivered > 0) {
+            onSpaceFreed();
+        }
+        if (closed && buffer.size() == 0) {
+            completeAll(null);
+        }
+    }
+
+    // Round-robin over subscribers that can take an item; claims one unit of demand
+    private BufferSubscription nextWithDemand() {
+        int count = subscriptions.size();
+        for (int i = 0; i < count; i++) {
+            BufferSubscription subscription;
+            try {
+                subscription = subscriptions.get(Math.floorMod(nextSubscriber++, count));
+            } catch (IndexOutOfBoundsException e) {
+                // Cancelled concurrently
+                return null;
+            }
+            if (subscription.ready && !subscription.cancelled && subscription.take()) {
+                return subscription;
+            }
+        }
+        return null;
+    }
+
+    private void completeAll(Throwable error) {
+        for (BufferSubscription subscription : subscriptions) {
+            if (!subscription.ready) {
+                continue;
+            }
+            subscriptions.remove(subscription);
+            if (error == null) {
+                subscription.subscriber.onComplete();
+            } else {
+                subscription.subscriber.onError(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.function.IntFunction;
+
+// Raw put/take throughput of each BoundedBuffer, without the sleeps and
+// printing of the simulation. Run: java BufferThroughputBenchmark [messages]
+class BufferThroughputBenchmark {
+    private static final int CAPACITY = 1024;
+    private static final Integer STOP = Integer.MIN_VALUE;
+    private static final int[][] SHAPES = { {1, 1}, {2, 3}, {4, 6}, {8, 8} };
+
+    public static void main(String[] args) throws InterruptedException {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        System.out.println("===== Buffer Throughput (" + messages + " messages, capacity " + CAPACITY + ") =====");
+
+        for (int[] shape : SHAPES) {
+            int producers = shape[0];
+            int consumers = shape[1];
+            double lockOps = measure(LockBasedBuffer::new, producers, consumers, messages);
+            double ringOps = measure(RingBuffer::new, producers, consumers, messages);
+            double shardedOps = measure(capacity -> new ShardedBuffer<>(consumers, capacity),
+                    producers, consumers, messages);
+            System.out.printf("%d producers x %d consumers: lock %,12.0f msg/s | ring %,12.0f msg/s (%.2fx)"
+                            + " | sharded %,12.0f msg/s (%.2fx)%n",
+                    producers, consumers, lockOps, ringOps, ringOps / lockOps, shardedOps, shardedOps / lockOps);
+        }
+    }
+
+    // One warm-up pass, then the best of three measured passes
+    private static double measure(IntFunction<BoundedBuffer<Integer>> factory, int producers, int consumers,
+                                  int messages) throws InterruptedException {
+        run(factory.apply(CAPACITY), producers, consumers, messages / 4);
+        double best = 0;
+        for (int i = 0; i < 3; i++) {
+            best = Math.max(best, run(factory.apply(CAPACITY), producers, consumers, messages));
+        }
+        return best;
+    }
+
+    private static double run(BoundedBuffer<Integer> buffer, int producers, int consumers, int messages)
+            throws InterruptedException {
+        int perProducer = messages / producers;
+        Thread[] producerThreads = new Thread[producers];
+        Thread[] consumerThreads = new Thread[consumers];
+
+        for (int i = 0; i < consumers; i++) {
+            consumerThreads[i] = new Thread(() -> {
+                try {
+                    while (buffer.take() != STOP) {
+                        // drain until the stop marker
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        for (int i = 0; i < producers; i++) {
+            producerThreads[i] = new Thread(() -> {
+                try {
+                    for (int n = 0; n < perProducer; n++) {
+                        buffer.put(n & 127);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread t : consumerThreads) {
+            t.start();
+        }
+        for (Thread t : producerThreads) {
+            t.start();
+        }
+        for (Thread t : producerThreads) {
+            t.join();
+        }
+        for (int i = 0; i < consumers; i++) {
+            buffer.put(STOP);
+        }
+        for (Thread t : consumerThreads) {
+            t.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        return (double) perProducer * producers / elapsed * 1_000_000_000L;
+    }
+}
@@ -0,0 +1,81 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Function;
+
+// BoundedBuffer decorator that logs every item to a WriteAheadLog before
+// handing it to the wrapped buffer. put() returns only once the item is
+// durable, so a producer that got past put() knows the message survives a
+// crash; after a restart, WriteAheadLog.replay() yields everything that
+// was acknowledged. The log is never trimmed of consumed items here, so a
+// replay redelivers them too (at-least-once).
+//
+// An item is logged before it is enqueued, so a replay can also yield
+// items that never reached the buffer: ones whose put() was interrupted
+// after logging, and ones whose offer() returned false because the slot
+// was taken while the item was being logged. Consumers must tolerate
+// duplicates.
+class DurableBuffer<T> implements BoundedBuffer<T> {
+    private final BoundedBuffer<T> buffer;
+    private final WriteAheadLog log;
+    private final Function<? super T, byte[]> encoder;
+
+    public DurableBuffer(BoundedBuffer<T> buffer, WriteAheadLog log, Function<? super T, byte[]> encoder) {
+        this.buffer = buffer;
+        this.log = log;
+        this.encoder = encoder;
+    }
+
+    @Override
+    public void put(T item) throws InterruptedException {
+        try {
+            log.appendAndWait(encoder.apply(item));
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not log item, not enqueued", e);
+        }
+        buffer.put(item);
+    }
+
+    // Never waits for space: a full buffer returns false without logging.
+    // Otherwise waits only for the log's commit, then claims a slot with the
+    // wrapped buffer's offer(); if another producer got there first the
+    // item stays in the log but is not enqueued, and false is returned.
+    @Override
+    public boolean offer(T item) {
+        if (buffer.size() >= buffer.capacity()) {
+            return false;
+        }
+        try {
+            log.appendAndWait(encoder.apply(item));
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not log item, not enqueued", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return buffer.offer(item);
+    }
+
+    @Override
+    public T take() throws InterruptedException {
+        return buffer.take();
+    }
+
+    @Override
+    public T poll() {
+        return buffer.poll();
+    }
+
+    @Override
+    public int size() {
+        return buffer.size();
+    }
+
+    @Override
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+    public WriteAheadLog getLog() {
+        return log;
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The producer-consumer simulation on Flow instead of blocking put/take.
+// Producers are timer ticks that only emit while consumers have asked for
+// more; consumers request 2 messages at a time and ask for another once one
+// is processed. A mapping stage sits in between. No thread ever parks on
+// the buffer: a producer without demand skips the tick and does other work.
+class FlowProducerConsumerExample {
+    private static final int CAPACITY = 5;
+    private static final int MESSAGES_PER_PRODUCER = 10;
+    private static final int CONSUMER_BATCH = 2;
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    private final BufferPublisher<String> publisher = new BufferPublisher<>(new LockBasedBuffer<>(CAPACITY), scheduler);
+    private final BufferProcessor<String, String> stage =
+            new BufferProcessor<>(new RingBuffer<>(CAPACITY), scheduler, message -> message + " (stamped)");
+    private final AtomicInteger producersRunning = new AtomicInteger();
+    private final CountDownLatch consumersDone = new CountDownLatch(3);
+
+    class Producer implements Runnable {
+        private final String name;
+        private int produced;
+        private int idleTicks;
+
+        Producer(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void run() {
+            if (produced == MESSAGES_PER_PRODUCER) {
+                return;
+            }
+            String message = name + " - Message " + (produced + 1);
+            if (publisher.getDemand() == 0 || !publisher.submit(message)) {
+                idleTicks++;
+                return;
+            }
+            produced++;
+            System.out.println(name + " produced: " + message + " (demand left " + publisher.getDemand() + ")");
+            if (produced == MESSAGES_PER_PRODUCER) {
+                System.out.println(name + " finished producing, skipped " + idleTicks + " ticks without demand.");
+                if (producersRunning.decrementAndGet() == 0) {
+                    publisher.close();
+                }
+            }
+        }
+    }
+
+    class Consumer implements Flow.Subscriber<String> {
+        private final String name;
+        private final AtomicInteger processing = new AtomicInteger();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private Flow.Subscription subscription;
+        private volatile boolean completed;
+        private final AtomicInteger consumed = new AtomicInteger();
+
+        Consumer(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(CONSUMER_BATCH);
+        }
+
+        @Override
+        public void onNext(String message) {
+            processing.incrementAndGet();
+            // Simulated processing time; demand is renewed once it is done
+            scheduler.schedule(() -> {
+                System.out.println(name + " consumed: " + message);
+                consumed.incrementAndGet();
+                if (processing.decrementAndGet() == 0 && completed) {
+                    finish();
+                } else {
+                    subscription.request(1);
+                }
+            }, ThreadLocalRandom.current().nextInt(500), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            System.out.println(name + " failed: " + error);
+            consumersDone.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            if (processing.get() == 0) {
+                finish();
+            }
+        }
+
+        private void finish() {
+            if (finished.compareAndSet(false, true)) {
+                System.out.println(name + " finished consuming " + consumed.get() + " messages.");
+                consumersDone.countDown();
+            }
+        }
+    }
+
+    public void startSimulation() throws InterruptedException {
+        System.out.println("===== Flow Producer-Consumer Simulation =====");
+        publisher.subscribe(stage);
+        for (int i = 1; i <= 3; i++) {
+            stage.subscribe(new Consumer("Consumer-" + i));
+        }
+        for (int i = 1; i <= 2; i++) {
+            producersRunning.incrementAndGet();
+            scheduler.scheduleAtFixedRate(new Producer("Producer-" + i), 0, 20, TimeUnit.MILLISECONDS);
+        }
+
+        consumersDone.await();
+        scheduler.shutdownNow();
+        System.out.println("Simulation completed! Buffered at the end: " + publisher.getBuffered()
+                + " + " + stage.getBuffered());
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        new FlowProducerConsumerExample().startSimulation();
+    }
+}
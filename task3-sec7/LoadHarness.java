@@ -0,0 +1,169 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Load generator for the BoundedBuffer implementations, for sizing buffers
+// and thread counts rather than watching demo output.
+//
+// With rate=0 producers run closed-loop, as fast as the buffer lets them.
+// With a rate the load is open-loop: every message has an intended send
+// time on a fixed or Poisson schedule, independent of how the system is
+// doing. Latency is measured from that intended time to the end of the
+// consumer's work, so time a producer spent blocked on a full buffer
+// counts against the messages it delayed (no coordinated omission). The
+// latency from the actual send time is reported next to it; the gap
+// between the two is what a naive measurement would have hidden.
+//
+// Run: java LoadHarness [buffer=lock|ring|sharded] [producers=2] [consumers=3] [messages=1000000]
+//                       [capacity=1024] [rate=0] [arrival=fixed|poisson] [work=0 (us per message)]
+//                       [warmup=10 (% of messages not recorded)]
+class LoadHarness {
+    private static final class Sample {
+        final long intendedAt;
+        final long sentAt;
+
+        Sample(long intendedAt, long sentAt) {
+            this.intendedAt = intendedAt;
+            this.sentAt = sentAt;
+        }
+    }
+
+    private static final Sample STOP = new Sample(0, 0);
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        String bufferType = options.getOrDefault("buffer", "lock");
+        int producers = Integer.parseInt(options.getOrDefault("producers", "2"));
+        int consumers = Integer.parseInt(options.getOrDefault("consumers", "3"));
+        long messages = Long.parseLong(options.getOrDefault("messages", "1000000"));
+        int capacity = Integer.parseInt(options.getOrDefault("capacity", "1024"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        boolean poisson = options.getOrDefault("arrival", "fixed").equals("poisson");
+        long workNanos = TimeUnit.MICROSECONDS.toNanos(Long.parseLong(options.getOrDefault("work", "0")));
+        long warmup = messages * Integer.parseInt(options.getOrDefault("warmup", "10")) / 100;
+
+        BoundedBuffer<Sample> buffer = switch (bufferType) {
+            case "lock" -> new LockBasedBuffer<>(capacity);
+            case "ring" -> new RingBuffer<>(capacity);
+            case "sharded" -> new ShardedBuffer<>(consumers, capacity);
+            default -> throw new IllegalArgumentException("unknown buffer: " + bufferType);
+        };
+        System.out.printf("===== %s buffer (capacity %d), %d producers, %d consumers, %,d messages, %s, work %d us =====%n",
+                bufferType, buffer.capacity(), producers, consumers, messages,
+                rate > 0 ? String.format("%,.0f msg/s %s", rate, poisson ? "poisson" : "fixed") : "closed loop",
+                TimeUnit.NANOSECONDS.toMicros(workNanos));
+
+        // Each producer sends every producers-th message, so together they follow the overall schedule
+        long perProducer = messages / producers;
+        double producerIntervalNanos = rate > 0 ? 1e9 * producers / rate : 0;
+        LatencyHistogram[] fromIntended = new LatencyHistogram[consumers];
+        LatencyHistogram[] fromSent = new LatencyHistogram[consumers];
+        Thread[] producerThreads = new Thread[producers];
+        Thread[] consumerThreads = new Thread[consumers];
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+        long recordAfter = start + (long) (warmup / Math.max(1, rate) * 1e9);
+
+        for (int c = 0; c < consumers; c++) {
+            LatencyHistogram intended = fromIntended[c] = new LatencyHistogram();
+            LatencyHistogram sent = fromSent[c] = new LatencyHistogram();
+            consumerThreads[c] = new Thread(() -> {
+                long seen = 0;
+                try {
+                    Sample sample;
+                    while ((sample = buffer.take()) != STOP) {
+                        if (workNanos > 0) {
+                            long until = System.nanoTime() + workNanos;
+                            while (System.nanoTime() < until) {
+                                Thread.onSpinWait();
+                            }
+                        }
+                        long done = System.nanoTime();
+                        // Closed loop has no schedule: skip the first messages by count per consumer instead
+                        boolean record = rate > 0 ? sample.intendedAt >= recordAfter : ++seen > warmup / consumers;
+                        if (record) {
+                            intended.record(done - sample.intendedAt);
+                            sent.record(done - sample.sentAt);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "consumer-" + c);
+        }
+        for (int p = 0; p < producers; p++) {
+            int index = p;
+            producerThreads[p] = new Thread(() -> {
+                double next = start + index * producerIntervalNanos / producers;
+                try {
+                    for (long i = 0; i < perProducer; i++) {
+                        long intendedAt;
+                        if (rate > 0) {
+                            intendedAt = (long) next;
+                            next += poisson
+                                    ? -Math.log(1 - ThreadLocalRandom.current().nextDouble()) * producerIntervalNanos
+                                    : producerIntervalNanos;
+                            long wait;
+                            while ((wait = intendedAt - System.nanoTime()) > 0) {
+                                LockSupport.parkNanos(wait);
+                            }
+                        } else {
+                            intendedAt = System.nanoTime();
+                        }
+                        buffer.put(new Sample(intendedAt, System.nanoTime()));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "producer-" + p);
+        }
+
+        for (Thread t : consumerThreads) {
+            t.start();
+        }
+        for (Thread t : producerThreads) {
+            t.start();
+        }
+        for (Thread t : producerThreads) {
+            t.join();
+        }
+        long producedAt = System.nanoTime();
+        for (int c = 0; c < consumers; c++) {
+            buffer.put(STOP);
+        }
+        for (Thread t : consumerThreads) {
+            t.join();
+        }
+        long end = System.nanoTime();
+
+        LatencyHistogram intended = new LatencyHistogram();
+        LatencyHistogram sent = new LatencyHistogram();
+        for (int c = 0; c < consumers; c++) {
+            intended.add(fromIntended[c]);
+            sent.add(fromSent[c]);
+        }
+        long total = perProducer * producers;
+        System.out.printf("throughput: %,.0f msg/s (producers done after %.2f s, all consumed after %.2f s)%n",
+                total / ((end - start) / 1e9), (producedAt - start) / 1e9, (end - start) / 1e9);
+        if (rate > 0) {
+            report("latency from intended send [us]", intended);
+        }
+        report(rate > 0 ? "latency from actual send   [us]" : "latency [us]", sent);
+    }
+
+    private static void report(String label, LatencyHistogram histogram) {
+        System.out.printf("%s: p50=%,.1f p90=%,.1f p99=%,.1f p99.9=%,.1f max=%,.1f mean=%,.1f (n=%,d)%n",
+                label, micros(histogram.getValueAtPercentile(50)), micros(histogram.getValueAtPercentile(90)),
+                micros(histogram.getValueAtPercentile(99)), micros(histogram.getValueAtPercentile(99.9)),
+                micros(histogram.getMax()), histogram.getMean() / 1e3, histogram.getTotalCount());
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1e3;
+    }
+}
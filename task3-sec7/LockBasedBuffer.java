@@ -0,0 +1,84 @@
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// The original buffer: a LinkedList guarded by one lock and two conditions
+class LockBasedBuffer<T> implements BoundedBuffer<T> {
+    private final Queue<T> buffer = new LinkedList<>();
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition bufferNotFull = lock.newCondition();
+    private final Condition bufferNotEmpty = lock.newCondition();
+
+    public LockBasedBuffer(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void put(T item) throws InterruptedException {
+        lock.lock();
+        try {
+            while (buffer.size() == capacity) {
+                bufferNotFull.await();
+            }
+            buffer.add(item);
+            bufferNotEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public T take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (buffer.isEmpty()) {
+                bufferNotEmpty.await();
+            }
+            T item = buffer.poll();
+            bufferNotFull.signalAll();
+            return item;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean offer(T item) {
+        lock.lock();
+        try {
+            if (buffer.size() == capacity) {
+                return false;
+            }
+            buffer.add(item);
+            bufferNotEmpty.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public T poll() {
+        lock.lock();
+        try {
+            T item = buffer.poll();
+            if (item != null) {
+                bufferNotFull.signalAll();
+            }
+            return item;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return buffer.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
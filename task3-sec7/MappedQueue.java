@@ -0,0 +1,314 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+// Persistent queue in a directory of memory-mapped segment files, so a
+// producer and its consumers can run as separate processes on one machine
+// and talk through the page cache instead of a socket.
+//
+// Each segment is a fixed-size file of records laid out as
+//   [int length][payload, padded to 4 bytes]
+// The length is written last with release semantics and read with acquire,
+// so a reader that sees a length also sees the payload, in this process or
+// another one mapping the same file. Length 0 means "not written yet"; END
+// means the writer moved on to the next segment.
+//
+// One appender at a time, enforced with a lock file in the directory
+// (threads inside it are serialized). A new appender clears whatever
+// follows the last complete record, so bytes of a record torn by a crash
+// can never be read as a later one. Any number of named tailers, each
+// with its read position persisted in its own small mapped file as one
+// 8-byte word (segment in the high half, offset in the low half), so a
+// crash can never leave a segment paired with another segment's offset
+// and a restarted consumer resumes where it stopped. A record is only
+// marked read after the reader callback returns: delivery is
+// at-least-once. Segments are never deleted here.
+class MappedQueue {
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final VarHandle INT =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final VarHandle LONG =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final int HEADER = Integer.BYTES;
+    private static final int END = -1;
+    // Tailer offsets keep the segment number in 32 bits
+    private static final long MAX_SEGMENT = 0xFFFF_FFFFL;
+
+    @FunctionalInterface
+    interface RecordReader {
+        void read(ByteBuffer buffer, int offset, int length);
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+
+    MappedQueue(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    MappedQueue(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < 1024 || segmentSize % HEADER != 0) {
+            throw new IllegalArgumentException("segment size must be a multiple of 4 and at least 1 KiB: " + segmentSize);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+    }
+
+    // Largest record that fits in a segment, leaving room for the END marker
+    public int maxRecordSize() {
+        return segmentSize - 2 * HEADER;
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%020d.seg", segment));
+    }
+
+    private MappedByteBuffer map(Path path, FileChannel.MapMode mode, int size) throws IOException {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[] { StandardOpenOption.READ }
+                : new StandardOpenOption[] { StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE };
+        // The mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            MappedByteBuffer buffer = channel.map(mode, 0, size);
+            buffer.order(ByteOrder.nativeOrder());
+            return buffer;
+        }
+    }
+
+    private long lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.endsWith(".seg"))
+                    .mapToLong(name -> Long.parseLong(name.substring(0, name.length() - 4)))
+                    .max()
+                    .orElse(0);
+        }
+    }
+
+    private static int padded(int length) {
+        return (length + HEADER - 1) & ~(HEADER - 1);
+    }
+
+    public Appender appender() throws IOException {
+        return new Appender();
+    }
+
+    public Tailer tailer(String name) throws IOException {
+        return new Tailer(name);
+    }
+
+    class Appender implements AutoCloseable {
+        private final FileChannel lockChannel;
+        private final FileLock lock;
+        private long segment;
+        private MappedByteBuffer buffer;
+        private int position;
+
+        private Appender() throws IOException {
+            lockChannel = FileChannel.open(directory.resolve("appender.lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                // Held until close(); the OS drops it if this process dies
+                lock = lockChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lockChannel.close();
+                throw new IllegalStateException("an appender is already open on " + directory, e);
+            } catch (IOException e) {
+                lockChannel.close();
+                throw e;
+            }
+            if (lock == null) {
+                lockChannel.close();
+                throw new IllegalStateException("another process is appending to " + directory);
+            }
+            try {
+                recover();
+            } catch (IOException | RuntimeException e) {
+                lockChannel.close();
+                throw e;
+            }
+        }
+
+        private void recover() throws IOException {
+            // Resume after the last complete record of the newest segment
+            segment = lastSegment();
+            buffer = map(segmentPath(segment), FileChannel.MapMode.READ_WRITE, segmentSize);
+            position = endOf(buffer);
+            clearFrom(position);
+            if (segment > 0 && position == 0) {
+                // A previous appender may have died between creating this
+                // segment and ending the one before; end it so tailers move on
+                MappedByteBuffer previous = map(segmentPath(segment - 1), FileChannel.MapMode.READ_WRITE, segmentSize);
+                int end = endOf(previous);
+                if (end + HEADER <= segmentSize && (int) INT.getAcquire(previous, end) != END) {
+                    INT.setRelease(previous, end, END);
+                }
+            }
+        }
+
+        // A crash can leave bytes of unfinished records after the last
+        // complete one, even a length word if pages reached the disk out of
+        // order. Records written from here on may not line up with them, so
+        // a tailer could later take stale bytes for a header.
+        private void clearFrom(int start) {
+            boolean cleared = false;
+            for (int i = start; i < segmentSize; i += HEADER) {
+                if (buffer.getInt(i) != 0) {
+                    buffer.putInt(i, 0);
+                    cleared = true;
+                }
+            }
+            if (cleared) {
+                buffer.force();
+            }
+        }
+
+        // Position of the first unwritten (or END) record
+        private int endOf(MappedByteBuffer segmentBuffer) {
+            int end = 0;
+            int length;
+            while (end + HEADER <= segmentSize
+                    && (length = (int) INT.getAcquire(segmentBuffer, end)) != 0 && length != END) {
+                end += HEADER + padded(length);
+            }
+            return end;
+        }
+
+        public synchronized void append(byte[] data) throws IOException {
+            append(data, 0, data.length);
+        }
+
+        public synchronized void append(byte[] data, int offset, int length) throws IOException {
+            if (length < 1 || length > maxRecordSize()) {
+                throw new IllegalArgumentException("record size must be 1.." + maxRecordSize() + ": " + length);
+            }
+            if (position + 2 * HEADER + padded(length) > segmentSize) {
+                if (segment == MAX_SEGMENT) {
+                    throw new IllegalStateException("segment numbers exhausted in " + directory);
+                }
+                // The next segment exists before END becomes visible, so a tailer can always follow
+                MappedByteBuffer next = map(segmentPath(segment + 1), FileChannel.MapMode.READ_WRITE, segmentSize);
+                INT.setRelease(buffer, position, END);
+                segment++;
+                buffer = next;
+                position = 0;
+            }
+            buffer.put(position + HEADER, data, offset, length);
+            INT.setRelease(buffer, position, length);
+            position += HEADER + padded(length);
+        }
+
+        // Forces written records to disk; without it they survive a process
+        // crash (the page cache has them) but not a machine crash
+        public synchronized void sync() {
+            buffer.force();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            buffer.force();
+            // Closing the channel releases the lock
+            lockChannel.close();
+        }
+    }
+
+    class Tailer implements AutoCloseable {
+        private static final int SPIN_TRIES = 1_000;
+        private static final long PARK_NANOS = 20_000;
+
+        private final MappedByteBuffer offsets;
+        private long segment;
+        private int position;
+        private MappedByteBuffer buffer;
+
+        private Tailer(String name) throws IOException {
+            offsets = map(directory.resolve(name + ".offset"), FileChannel.MapMode.READ_WRITE, Long.BYTES);
+            long offset = (long) LONG.getAcquire(offsets, 0);
+            segment = offset >>> 32;
+            position = (int) offset;
+        }
+
+        // False if there is no complete record yet (or no segment at all)
+        public boolean poll(RecordReader reader) throws IOException {
+            while (true) {
+                if (buffer == null) {
+                    Path path = segmentPath(segment);
+                    // The appender may have created the file but not sized it yet
+                    if (!Files.exists(path) || Files.size(path) < segmentSize) {
+                        return false;
+                    }
+                    buffer = map(path, FileChannel.MapMode.READ_ONLY, segmentSize);
+                }
+                int length = position + HEADER <= segmentSize ? (int) INT.getAcquire(buffer, position) : 0;
+                if (length == 0) {
+                    return false;
+                }
+                if (length == END) {
+                    segment++;
+                    position = 0;
+                    buffer = null;
+                    continue;
+                }
+                reader.read(buffer, position + HEADER, length);
+                position += HEADER + padded(length);
+                // One aligned 8-byte store, so it is never seen half written
+                LONG.setRelease(offsets, 0, segment << 32 | position);
+                return true;
+            }
+        }
+
+        public byte[] poll() throws IOException {
+            byte[][] result = new byte[1][];
+            return poll((buffer, offset, length) -> {
+                result[0] = new byte[length];
+                buffer.get(offset, result[0]);
+            }) ? result[0] : null;
+        }
+
+        // Spins briefly for the lowest latency, then parks in short steps
+        public boolean poll(RecordReader reader, long timeout, TimeUnit unit)
+                throws IOException, InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            int attempts = 0;
+            while (!poll(reader)) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (System.nanoTime() - deadline >= 0) {
+                    return false;
+                }
+                if (attempts++ < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+            }
+            return true;
+        }
+
+        public long getSegment() {
+            return segment;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        @Override
+        public void close() {
+            offsets.force();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Consumer side of the cross-process demo: tails a MappedQueue under a
+// consumer name and reports end-to-end latency percentiles per window.
+// Stop it and start it again: it resumes from its persisted position.
+// Run: java MappedQueueConsumer [dir=/tmp/mapped-queue] [name=consumer-1] [idleSeconds=5]
+class MappedQueueConsumer {
+    private static final int WINDOW = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Path.of(args.length > 0 ? args[0] : "/tmp/mapped-queue");
+        String name = args.length > 1 ? args[1] : "consumer-1";
+        long idleSeconds = args.length > 2 ? Long.parseLong(args[2]) : 5;
+
+        MappedQueue queue = new MappedQueue(directory);
+        long[] latencies = new long[WINDOW];
+        int[] count = new int[1];
+        long[] lastSequence = {-1};
+        String[] lastText = new String[1];
+        long total = 0;
+
+        try (MappedQueue.Tailer tailer = queue.tailer(name)) {
+            System.out.println(name + " tailing " + directory + " from segment " + tailer.getSegment()
+                    + " position " + tailer.getPosition());
+            MappedQueue.RecordReader reader = (buffer, offset, length) -> {
+                latencies[count[0]++] = System.nanoTime() - buffer.getLong(offset);
+                lastSequence[0] = buffer.getLong(offset + Long.BYTES);
+                if (count[0] == WINDOW) {
+                    byte[] text = new byte[length - 2 * Long.BYTES];
+                    buffer.get(offset + 2 * Long.BYTES, text);
+                    lastText[0] = new String(text, StandardCharsets.UTF_8);
+                }
+            };
+            while (tailer.poll(reader, idleSeconds, TimeUnit.SECONDS)) {
+                total++;
+                if (count[0] == WINDOW) {
+                    report(name, latencies, count[0], lastText[0]);
+                    count[0] = 0;
+                }
+            }
+            if (count[0] > 0) {
+                report(name, latencies, count[0], "sequence " + lastSequence[0]);
+            }
+        }
+        System.out.println(name + " consumed " + total + " messages, idle for " + idleSeconds + "s, stopping");
+    }
+
+    private static void report(String name, long[] latencies, int count, String last) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        System.out.printf("%s: %d msgs up to %s | latency us p50=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+                name, count, last, sorted[count / 2] / 1e3, sorted[(int) (count * 0.99)] / 1e3,
+                sorted[(int) (count * 0.999)] / 1e3, sorted[count - 1] / 1e3);
+    }
+}
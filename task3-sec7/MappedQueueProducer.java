@@ -0,0 +1,42 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.locks.LockSupport;
+
+// Producer side of the cross-process demo: appends messages to a MappedQueue
+// directory that MappedQueueConsumer, started as another process, tails.
+// Every record starts with the send time from System.nanoTime(), which on
+// Linux is a machine-wide monotonic clock, so the consumer can compute the
+// end-to-end latency.
+// Run: java MappedQueueProducer [dir=/tmp/mapped-queue] [messages=1000000] [perSecond=100000]
+class MappedQueueProducer {
+    public static void main(String[] args) throws Exception {
+        Path directory = Path.of(args.length > 0 ? args[0] : "/tmp/mapped-queue");
+        long messages = args.length > 1 ? Long.parseLong(args[1]) : 1_000_000;
+        long perSecond = args.length > 2 ? Long.parseLong(args[2]) : 100_000;
+        long intervalNanos = 1_000_000_000L / perSecond;
+
+        MappedQueue queue = new MappedQueue(directory);
+        byte[] record = new byte[64];
+        // Same byte order as the mapped segments the consumer reads from
+        ByteBuffer header = ByteBuffer.wrap(record).order(ByteOrder.nativeOrder());
+        System.out.println("Appending " + messages + " messages to " + directory + " at " + perSecond + "/s");
+
+        try (MappedQueue.Appender appender = queue.appender()) {
+            long start = System.nanoTime();
+            for (long sequence = 0; sequence < messages; sequence++) {
+                long due = start + sequence * intervalNanos;
+                while (System.nanoTime() < due) {
+                    LockSupport.parkNanos(due - System.nanoTime());
+                }
+                byte[] text = ("Msg-" + sequence).getBytes(StandardCharsets.UTF_8);
+                header.putLong(0, System.nanoTime());
+                header.putLong(Long.BYTES, sequence);
+                System.arraycopy(text, 0, record, 2 * Long.BYTES, text.length);
+                appender.append(record, 0, 2 * Long.BYTES + text.length);
+            }
+        }
+        System.out.println("Producer done");
+    }
+}
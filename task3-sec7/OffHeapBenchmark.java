@@ -0,0 +1,116 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+// One producer and one consumer passing two-long records:
+// through OffHeapRingBuffer in place, and as boxed Longs through RingBuffer.
+// Reports throughput, heap allocated by the two threads and GC activity
+// during the run. Run: java OffHeapBenchmark [messages]
+class OffHeapBenchmark {
+    private static final int CAPACITY = 64 * 1024;
+    private static final int RECORD_SIZE = 2 * Long.BYTES;
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    interface Side {
+        void run(long messages) throws InterruptedException;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long messages = args.length > 0 ? Long.parseLong(args[0]) : 50_000_000L;
+        System.out.println("===== Off-heap records vs boxed on-heap, " + messages + " messages =====");
+        for (int round = 0; round < 2; round++) {
+            boolean print = round == 1;
+            long count = print ? messages : messages / 10;
+            offHeap(count, print);
+            onHeap(count, print);
+        }
+    }
+
+    private static void offHeap(long messages, boolean print) throws InterruptedException {
+        OffHeapRingBuffer ring = new OffHeapRingBuffer(CAPACITY, RECORD_SIZE);
+        long[] checksum = new long[1];
+        // Writer and reader are created once; the per-message path only touches the buffer
+        long[] next = new long[1];
+        OffHeapRingBuffer.RecordWriter writer = (buffer, offset) -> {
+            buffer.putLong(offset, next[0]);
+            buffer.putLong(offset + Long.BYTES, ~next[0]);
+        };
+        OffHeapRingBuffer.RecordReader reader = (buffer, offset) -> checksum[0] += buffer.getLong(offset);
+        measure("off-heap records ", messages, print, n -> {
+            for (long i = 0; i < n; i++) {
+                next[0] = i;
+                ring.put(writer);
+            }
+        }, n -> {
+            for (long i = 0; i < n; i++) {
+                ring.take(reader);
+            }
+        });
+        if (checksum[0] != messages * (messages - 1) / 2) {
+            throw new IllegalStateException("records lost or corrupted");
+        }
+    }
+
+    private static void onHeap(long messages, boolean print) throws InterruptedException {
+        RingBuffer<Long> ring = new RingBuffer<>(CAPACITY);
+        long[] checksum = new long[1];
+        measure("boxed RingBuffer ", messages, print, n -> {
+            for (long i = 0; i < n; i++) {
+                ring.put(i);
+            }
+        }, n -> {
+            for (long i = 0; i < n; i++) {
+                checksum[0] += ring.take();
+            }
+        });
+        if (checksum[0] != messages * (messages - 1) / 2) {
+            throw new IllegalStateException("messages lost or corrupted");
+        }
+    }
+
+    private static void measure(String label, long messages, boolean print, Side producer, Side consumer)
+            throws InterruptedException {
+        long[] allocated = new long[2];
+        Thread[] threads = new Thread[2];
+        Side[] sides = {producer, consumer};
+        for (int i = 0; i < 2; i++) {
+            int index = i;
+            threads[i] = new Thread(() -> {
+                long before = THREADS.getCurrentThreadAllocatedBytes();
+                try {
+                    sides[index].run(messages);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                allocated[index] = THREADS.getCurrentThreadAllocatedBytes() - before;
+            });
+        }
+
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long nanos = System.nanoTime() - start;
+
+        if (print) {
+            System.out.printf("%s: %,13.0f msg/s | %6.2f B/msg on heap | %d GCs, %d ms%n",
+                    label, messages / (nanos / 1e9), (double) (allocated[0] + allocated[1]) / messages,
+                    gcCount() - gcCountBefore, gcMillis() - gcMillisBefore);
+        }
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+}
@@ -0,0 +1,172 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// RingBuffer's algorithm over fixed-size binary records in a direct
+// ByteBuffer, so buffered messages are outside the Java heap and the GC
+// never scans or copies them. Each slot is an 8-byte sequence, a status
+// word and the record; the sequence is read with acquire and written with
+// release semantics through a VarHandle, which publishes the record bytes
+// written before it. Producers and consumers access records in place
+// through RecordWriter / RecordReader callbacks, so nothing is allocated
+// per message. Each callback sees a view limited to its own record, made
+// once per slot up front, and cannot touch a neighbouring slot.
+//
+// A slot is always handed on, even if the callback throws: a record whose
+// writer failed is marked invalid and skipped by poll(); a record whose
+// reader failed is dropped. The exception still reaches the caller.
+class OffHeapRingBuffer {
+    private static final VarHandle SEQUENCE =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final int STATUS = Long.BYTES;
+    private static final int HEADER = 2 * Long.BYTES;
+    private static final int VALID = 1;
+    private static final int INVALID = 0;
+    private static final int CACHE_LINE = 64;
+
+    // Writes one record starting at offset in a view of recordSize bytes;
+    // use absolute put methods only
+    @FunctionalInterface
+    interface RecordWriter {
+        void write(ByteBuffer buffer, int offset);
+    }
+
+    // Reads one record starting at offset in a read-only view of
+    // recordSize bytes; use absolute get methods only
+    @FunctionalInterface
+    interface RecordReader {
+        void read(ByteBuffer buffer, int offset);
+    }
+
+    private final ByteBuffer buffer;
+    private final ByteBuffer[] writeViews;
+    private final ByteBuffer[] readViews;
+    private final int capacity;
+    private final int mask;
+    private final int recordSize;
+    private final int slotSize;
+    private final RingBuffer.PaddedCounter head = new RingBuffer.PaddedCounter();
+    private final RingBuffer.PaddedCounter tail = new RingBuffer.PaddedCounter();
+
+    // Capacity is rounded up to a power of two, the slot size to a multiple of 8
+    public OffHeapRingBuffer(int requestedCapacity, int recordSize) {
+        if (requestedCapacity < 1 || recordSize < 1) {
+            throw new IllegalArgumentException("capacity and record size must be at least 1");
+        }
+        int highest = Integer.highestOneBit(requestedCapacity);
+        this.capacity = highest == requestedCapacity ? requestedCapacity : highest << 1;
+        this.mask = capacity - 1;
+        this.recordSize = recordSize;
+        this.slotSize = HEADER + ((recordSize + 7) & ~7);
+        long bytes = (long) capacity * slotSize;
+        if (bytes + CACHE_LINE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("buffer too large: " + bytes + " bytes");
+        }
+        // Aligned so the sequence fields can be accessed atomically
+        this.buffer = ByteBuffer.allocateDirect((int) bytes + CACHE_LINE)
+                .alignedSlice(CACHE_LINE)
+                .order(ByteOrder.nativeOrder());
+        this.writeViews = new ByteBuffer[capacity];
+        this.readViews = new ByteBuffer[capacity];
+        for (int i = 0; i < capacity; i++) {
+            writeViews[i] = buffer.slice(i * slotSize + HEADER, recordSize).order(ByteOrder.nativeOrder());
+            readViews[i] = writeViews[i].asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+            SEQUENCE.setRelease(buffer, i * slotSize, (long) i);
+        }
+    }
+
+    public boolean offer(RecordWriter writer) {
+        long pos = tail.get();
+        int offset;
+        while (true) {
+            offset = (int) (pos & mask) * slotSize;
+            long diff = (long) SEQUENCE.getAcquire(buffer, offset) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+        int status = INVALID;
+        try {
+            writer.write(writeViews[(int) (pos & mask)], 0);
+            status = VALID;
+        } finally {
+            // Published even on failure, or every consumer would wait on this slot forever
+            buffer.putInt(offset + STATUS, status);
+            SEQUENCE.setRelease(buffer, offset, pos + 1);
+        }
+        return true;
+    }
+
+    // Skips records whose writer failed
+    public boolean poll(RecordReader reader) {
+        while (true) {
+            long pos = head.get();
+            int offset;
+            while (true) {
+                offset = (int) (pos & mask) * slotSize;
+                long diff = (long) SEQUENCE.getAcquire(buffer, offset) - (pos + 1);
+                if (diff == 0) {
+                    if (head.compareAndSet(pos, pos + 1)) {
+                        break;
+                    }
+                    pos = head.get();
+                } else if (diff < 0) {
+                    return false;
+                } else {
+                    pos = head.get();
+                }
+            }
+            boolean valid = buffer.getInt(offset + STATUS) == VALID;
+            try {
+                if (valid) {
+                    reader.read(readViews[(int) (pos & mask)], 0);
+                }
+            } finally {
+                SEQUENCE.setRelease(buffer, offset, pos + capacity);
+            }
+            if (valid) {
+                return true;
+            }
+        }
+    }
+
+    public void put(RecordWriter writer) throws InterruptedException {
+        int attempts = 0;
+        while (!offer(writer)) {
+            attempts = RingBuffer.backOff(attempts);
+        }
+    }
+
+    public void take(RecordReader reader) throws InterruptedException {
+        int attempts = 0;
+        while (!poll(reader)) {
+            attempts = RingBuffer.backOff(attempts);
+        }
+    }
+
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int recordSize() {
+        return recordSize;
+    }
+
+    // Off-heap bytes held by this buffer
+    public int footprint() {
+        return buffer.capacity();
+    }
+}
@@ -0,0 +1,70 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// BoundedBuffer<String> on top of OffHeapRingBuffer, so ProducerConsumerExample
+// can run on it unchanged. Strings are stored as length-prefixed UTF-8 of at
+// most maxBytes. Encoding and decoding still create on-heap Strings; code
+// that needs the allocation-free path should use the record API directly.
+class OffHeapStringBuffer implements BoundedBuffer<String> {
+    private final OffHeapRingBuffer ring;
+    private final int maxBytes;
+    // Reused per thread, so a put or take needs no scratch allocation of its own
+    private final ThreadLocal<byte[]> scratch;
+
+    public OffHeapStringBuffer(int capacity, int maxBytes) {
+        this.ring = new OffHeapRingBuffer(capacity, Integer.BYTES + maxBytes);
+        this.maxBytes = maxBytes;
+        this.scratch = ThreadLocal.withInitial(() -> new byte[maxBytes]);
+    }
+
+    private OffHeapRingBuffer.RecordWriter encode(String item) {
+        byte[] bytes = item.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxBytes) {
+            throw new IllegalArgumentException("message longer than " + maxBytes + " bytes: " + item);
+        }
+        return (buffer, offset) -> {
+            buffer.putInt(offset, bytes.length);
+            buffer.put(offset + Integer.BYTES, bytes, 0, bytes.length);
+        };
+    }
+
+    @Override
+    public void put(String item) throws InterruptedException {
+        ring.put(encode(item));
+    }
+
+    @Override
+    public boolean offer(String item) {
+        return ring.offer(encode(item));
+    }
+
+    @Override
+    public String take() throws InterruptedException {
+        String[] result = new String[1];
+        ring.take((buffer, offset) -> result[0] = decode(buffer, offset));
+        return result[0];
+    }
+
+    @Override
+    public String poll() {
+        String[] result = new String[1];
+        return ring.poll((buffer, offset) -> result[0] = decode(buffer, offset)) ? result[0] : null;
+    }
+
+    private String decode(ByteBuffer buffer, int offset) {
+        int length = buffer.getInt(offset);
+        byte[] bytes = scratch.get();
+        buffer.get(offset + Integer.BYTES, bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int size() {
+        return ring.size();
+    }
+
+    @Override
+    public int capacity() {
+        return ring.capacity();
+    }
+}
@@ -1,14 +1,19 @@
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.ReentrantLock;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
 
 class ProducerConsumerExample {
-    private final Queue<String> buffer = new LinkedList<>();
-    private final int CAPACITY = 5;
-    private final ReentrantLock lock = new ReentrantLock();
-    private final Condition bufferNotFull = lock.newCondition();
-    private final Condition bufferNotEmpty = lock.newCondition();
+    private static final int CAPACITY = 5;
+    private final BoundedBuffer<String> buffer;
+
+    public ProducerConsumerExample() {
+        this(new LockBasedBuffer<>(CAPACITY));
+    }
+
+    public ProducerConsumerExample(BoundedBuffer<String> buffer) {
+        this.buffer = buffer;
+    }
 
     class Producer extends Thread {
         private String name;
@@ -22,22 +27,14 @@ class ProducerConsumerExample {
                 try {
                     Thread.sleep((int)(Math.random() * 1000));
                     
-                    lock.lock();
-                    try {
-                        while (buffer.size() == CAPACITY) {
-                            System.out.println(name + ": Buffer full, waiting...");
-                            bufferNotFull.await();
-                        }
-                        
-                        String message = name + " - Message " + i;
-                        buffer.add(message);
-                        System.out.println(name + " produced: " + message);
-                        System.out.println("Buffer size: " + buffer.size());
-                        
-                        bufferNotEmpty.signalAll();
-                    } finally {
-                        lock.unlock();
+                    if (buffer.size() == buffer.capacity()) {
+                        System.out.println(name + ": Buffer full, waiting...");
                     }
+                    
+                    String message = name + " - Message " + i;
+                    buffer.put(message);
+                    System.out.println(name + " produced: " + message);
+                    System.out.println("Buffer size: " + buffer.size());
                 } catch (InterruptedException e) {
                     e.printStackTrace();
                 }
@@ -58,21 +55,13 @@ class ProducerConsumerExample {
                 try {
                     Thread.sleep((int)(Math.random() * 1500));
                     
-                    lock.lock();
-                    try {
-                        while (buffer.isEmpty()) {
-                            System.out.println(name + ": Buffer empty, waiting...");
-                            bufferNotEmpty.await();
-                        }
-                        
-                        String message = buffer.poll();
-                        System.out.println(name + " consumed: " + message);
-                        System.out.println("Buffer size: " + buffer.size());
-                        
-                        bufferNotFull.signalAll();
-                    } finally {
-                        lock.unlock();
+                    if (buffer.size() == 0) {
+                        System.out.println(name + ": Buffer empty, waiting...");
                     }
+                    
+                    String message = buffer.take();
+                    System.out.println(name + " consumed: " + message);
+                    System.out.println("Buffer size: " + buffer.size());
                 } catch (InterruptedException e) {
                     e.printStackTrace();
                 }
@@ -83,7 +72,7 @@ class ProducerConsumerExample {
 
     public void startSimulation() {
         System.out.println("===== Producer-Consumer Simulation =====");
-        System.out.println("Buffer Capacity: " + CAPACITY);
+        System.out.println("Buffer: " + buffer.getClass().getSimpleName() + ", capacity " + buffer.capacity());
         System.out.println("Each producer produces 10 messages");
         System.out.println("Each consumer consumes 10 messages");
         System.out.println("----------------------------------------");
@@ -126,11 +115,35 @@ class ProducerConsumerExample {
         System.out.println("----------------------------------------");
         System.out.println("Simulation completed!");
         System.out.println("Final buffer size: " + buffer.size());
+        if (buffer instanceof DurableBuffer<String> durable) {
+            System.out.println("Write-ahead log: " + durable.getLog().getStats());
+        }
+        if (buffer instanceof ShardedBuffer<String> sharded) {
+            System.out.println("Messages stolen from other consumers' shards: " + sharded.getSteals());
+        }
         System.out.println("========================================");
     }
 
-    public static void main(String[] args) {
-        ProducerConsumerExample example = new ProducerConsumerExample();
+    // Pass "ring" to run on the lock-free RingBuffer instead of the lock-based one,
+    // "sharded" for one queue per consumer with work stealing, "offheap"
+    // to keep the buffered messages in a direct ByteBuffer, or "durable" to
+    // log every message to producer-consumer.wal before it is enqueued
+    public static void main(String[] args) throws IOException {
+        String mode = args.length > 0 ? args[0] : "lock";
+        if (mode.equals("durable")) {
+            // Closing the log commits what is still queued and releases the file
+            try (WriteAheadLog log = new WriteAheadLog(Path.of("producer-consumer.wal"), Duration.ofMillis(2), 64)) {
+                new ProducerConsumerExample(new DurableBuffer<>(new LockBasedBuffer<>(CAPACITY), log,
+                        message -> message.getBytes(StandardCharsets.UTF_8))).startSimulation();
+            }
+            return;
+        }
+        ProducerConsumerExample example = switch (mode) {
+            case "ring" -> new ProducerConsumerExample(new RingBuffer<>(CAPACITY));
+            case "sharded" -> new ProducerConsumerExample(new ShardedBuffer<>(3, CAPACITY));
+            case "offheap" -> new ProducerConsumerExample(new OffHeapStringBuffer(CAPACITY, 64));
+            default -> new ProducerConsumerExample();
+        };
         example.startSimulation();
     }
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Lock-free multi-producer / multi-consumer ring buffer. Every slot carries a
+// sequence number that tells producers and consumers whose turn it is, so
+// the only shared writes are one CAS on the tail (put) or head (take).
+// Slots are preallocated; nothing is allocated per element.
+class RingBuffer<T> implements BoundedBuffer<T> {
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long PARK_NANOS = 20_000;
+
+    private final int capacity;
+    private final int mask;
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final PaddedCounter head = new PaddedCounter();
+    private final PaddedCounter tail = new PaddedCounter();
+
+    // Padding keeps the head and tail counters on different cache lines
+    @SuppressWarnings("unused")
+    static final class PaddedCounter extends AtomicLong {
+        private static final long serialVersionUID = 1L;
+
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    // Capacity is rounded up to a power of two so slots can be found with a mask
+    public RingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + requestedCapacity);
+        }
+        this.capacity = roundUp(requestedCapacity);
+        this.mask = capacity - 1;
+        this.elements = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    private static int roundUp(int value) {
+        int highest = Integer.highestOneBit(value);
+        return highest == value ? value : highest << 1;
+    }
+
+    public boolean offer(T item) {
+        if (item == null) {
+            throw new NullPointerException();
+        }
+        long pos = tail.get();
+        int index;
+        while (true) {
+            index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // Slot still holds an element from the previous lap: full
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+        elements[index] = item;
+        sequences.lazySet(index, pos + 1);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long pos = head.get();
+        int index;
+        while (true) {
+            index = (int) (pos & mask);
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                // Producer has not published this slot yet: empty
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+        T item = (T) elements[index];
+        elements[index] = null;
+        sequences.lazySet(index, pos + capacity);
+        return item;
+    }
+
+    public void put(T item) throws InterruptedException {
+        int attempts = 0;
+        while (!offer(item)) {
+            attempts = backOff(attempts);
+        }
+    }
+
+    public T take() throws InterruptedException {
+        int attempts = 0;
+        T item;
+        while ((item = poll()) == null) {
+            attempts = backOff(attempts);
+        }
+        return item;
+    }
+
+    // Spin first, then yield, then park briefly so idle waiters do not burn a core
+    static int backOff(int attempts) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (attempts < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (attempts < YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return attempts < YIELD_TRIES ? attempts + 1 : attempts;
+    }
+
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
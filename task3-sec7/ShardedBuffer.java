@@ -0,0 +1,233 @@
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// One deque per consumer instead of one queue for everybody. Producers
+// spread messages over the shards round-robin; a consumer takes from the
+// head of its own shard and, when that is empty, steals from the tail of
+// the others. Each shard has its own lock, so producers and consumers
+// mostly touch different locks, and a consumer stuck on a slow message
+// does not leave its backlog waiting.
+//
+// Keyed messages go to a second deque per shard, chosen by key, which is
+// never stolen from: messages with equal keys reach the shard's consumer
+// in order, as long as one thread takes from each shard. They are bounded
+// by the same per-shard capacity, separately from unkeyed messages.
+//
+// Consumers get a shard the first time they call take(), or can pass an
+// index explicitly. Unkeyed ordering is only FIFO per shard, and a stolen
+// message may overtake older ones. A consumer with nothing to do sleeps
+// on its shard's condition; a producer only takes that lock when some
+// consumer is asleep, and wakes the shard's owner first, or for unkeyed
+// messages any other sleeping consumer that can steal it.
+class ShardedBuffer<T> implements BoundedBuffer<T> {
+    private final LinkedBlockingDeque<T>[] shards;
+    private final LinkedBlockingDeque<T>[] keyed;
+    private final int shardCapacity;
+    private final AtomicInteger nextShard = new AtomicInteger();
+    private final AtomicInteger nextConsumer = new AtomicInteger();
+    private final ThreadLocal<Integer> consumerShard;
+    private final LongAdder steals = new LongAdder();
+    private final ReentrantLock idleLock = new ReentrantLock();
+    private final Condition[] work;
+    // Per shard, guarded by idleLock: consumers asleep, and wake-ups sent
+    // to it that no consumer has claimed yet
+    private final int[] idle;
+    private final int[] wakeups;
+    // Sum of idle[], read without the lock so producers skip it when nobody sleeps
+    private final AtomicInteger idleConsumers = new AtomicInteger();
+
+    // The capacity is split evenly over the shards, rounding up
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ShardedBuffer(int shards, int capacity) {
+        if (shards < 1 || capacity < shards) {
+            throw new IllegalArgumentException("need 1 <= shards <= capacity: " + shards + ", " + capacity);
+        }
+        this.shardCapacity = (capacity + shards - 1) / shards;
+        this.shards = new LinkedBlockingDeque[shards];
+        this.keyed = new LinkedBlockingDeque[shards];
+        this.work = new Condition[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new LinkedBlockingDeque<>(shardCapacity);
+            this.keyed[i] = new LinkedBlockingDeque<>(shardCapacity);
+            this.work[i] = idleLock.newCondition();
+        }
+        this.idle = new int[shards];
+        this.wakeups = new int[shards];
+        this.consumerShard = ThreadLocal.withInitial(() -> nextConsumer.getAndIncrement() % shards);
+    }
+
+    // Round-robin; a full shard is skipped as long as another one has room
+    @Override
+    public void put(T item) throws InterruptedException {
+        int start = nextShard.getAndIncrement();
+        int shard = offerFrom(start, item);
+        if (shard < 0) {
+            shard = Math.floorMod(start, shards.length);
+            shards[shard].putLast(item);
+        }
+        wakeConsumer(shard, false);
+    }
+
+    // Messages with the same key go to the same shard and are never stolen
+    public void put(Object key, T item) throws InterruptedException {
+        int h = key.hashCode();
+        int shard = Math.floorMod(h ^ (h >>> 16), shards.length);
+        keyed[shard].putLast(item);
+        wakeConsumer(shard, true);
+    }
+
+    @Override
+    public boolean offer(T item) {
+        int shard = offerFrom(nextShard.getAndIncrement(), item);
+        if (shard < 0) {
+            return false;
+        }
+        wakeConsumer(shard, false);
+        return true;
+    }
+
+    // Index of the shard that took the item, -1 if all are full
+    private int offerFrom(int start, T item) {
+        for (int i = 0; i < shards.length; i++) {
+            int shard = Math.floorMod(start + i, shards.length);
+            if (shards[shard].offerLast(item)) {
+                return shard;
+            }
+        }
+        return -1;
+    }
+
+    // Reading idleConsumers after the insert pairs with registering as idle
+    // before the last look in awaitWork(): one of the two sees the other
+    private void wakeConsumer(int shard, boolean ownerOnly) {
+        if (idleConsumers.get() == 0) {
+            return;
+        }
+        idleLock.lock();
+        try {
+            wakeIdle(shard, ownerOnly);
+        } finally {
+            idleLock.unlock();
+        }
+    }
+
+    // Called with idleLock held
+    private void wakeIdle(int shard, boolean ownerOnly) {
+        for (int i = 0; i < (ownerOnly ? 1 : shards.length); i++) {
+            int target = (shard + i) % shards.length;
+            if (idle[target] > 0) {
+                // Counted as awake right away, so the next message wakes somebody else
+                idle[target]--;
+                wakeups[target]++;
+                idleConsumers.decrementAndGet();
+                work[target].signal();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public T take() throws InterruptedException {
+        return take(consumerShard.get());
+    }
+
+    public T take(int consumer) throws InterruptedException {
+        while (true) {
+            T item = poll(consumer);
+            if (item == null) {
+                item = awaitWork(consumer);
+            }
+            if (item != null) {
+                return item;
+            }
+        }
+    }
+
+    // Registers as idle, looks once more and sleeps until a producer wakes
+    // this shard; null after a wake-up, which may have been for a message
+    // somebody else got first
+    private T awaitWork(int consumer) throws InterruptedException {
+        idleLock.lockInterruptibly();
+        try {
+            idle[consumer]++;
+            idleConsumers.incrementAndGet();
+            T item = null;
+            boolean interrupted = false;
+            try {
+                item = poll(consumer);
+                if (item == null) {
+                    work[consumer].await();
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+                throw e;
+            } finally {
+                if (wakeups[consumer] > 0) {
+                    wakeups[consumer]--;
+                    if (interrupted) {
+                        // Pass on a wake-up this thread will not act on
+                        wakeIdle(consumer, false);
+                    }
+                } else {
+                    idle[consumer]--;
+                    idleConsumers.decrementAndGet();
+                }
+            }
+            return item;
+        } finally {
+            idleLock.unlock();
+        }
+    }
+
+    @Override
+    public T poll() {
+        return poll(consumerShard.get());
+    }
+
+    public T poll(int consumer) {
+        T item = shards[consumer].pollFirst();
+        if (item == null) {
+            item = keyed[consumer].pollFirst();
+        }
+        return item != null ? item : steal(consumer);
+    }
+
+    // Takes from the tail of the next non-empty shard, where the newest
+    // messages are; keyed messages are left alone
+    private T steal(int thief) {
+        for (int i = 1; i < shards.length; i++) {
+            T item = shards[(thief + i) % shards.length].pollLast();
+            if (item != null) {
+                steals.increment();
+                return item;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < shards.length; i++) {
+            size += shards[i].size() + keyed[i].size();
+        }
+        return size;
+    }
+
+    // Unkeyed messages only; keyed ones have the same capacity again
+    @Override
+    public int capacity() {
+        return shardCapacity * shards.length;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public long getSteals() {
+        return steals.sum();
+    }
+}
@@ -0,0 +1,62 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+// Durable appends per second and acknowledgement latency for a range of
+// group-commit settings, from one force() per record to large batches with
+// a commit delay. Every producer waits for its own acknowledgement before
+// sending the next record, like DurableBuffer.put().
+// Run: java WalBenchmark [dir=/tmp] [producers=16] [recordsPerProducer=500]
+class WalBenchmark {
+    private static final int RECORD_SIZE = 64;
+    // { maxBatchSize, maxCommitDelay in microseconds }
+    private static final int[][] SETTINGS = { {1, 0}, {64, 0}, {256, 200}, {1024, 2000} };
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Path.of(args.length > 0 ? args[0] : "/tmp");
+        int producers = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int perProducer = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        System.out.println("===== WAL group commit: " + producers + " producers x " + perProducer + " records =====");
+
+        for (int[] setting : SETTINGS) {
+            Path file = Files.createTempFile(directory, "wal-benchmark", ".log");
+            try (WriteAheadLog log = new WriteAheadLog(file, Duration.ofNanos(setting[1] * 1_000L), setting[0])) {
+                long[][] latencies = new long[producers][perProducer];
+                Thread[] threads = new Thread[producers];
+                for (int p = 0; p < producers; p++) {
+                    long[] mine = latencies[p];
+                    threads[p] = new Thread(() -> {
+                        byte[] record = new byte[RECORD_SIZE];
+                        try {
+                            for (int i = 0; i < perProducer; i++) {
+                                long start = System.nanoTime();
+                                log.appendAndWait(record);
+                                mine[i] = System.nanoTime() - start;
+                            }
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    });
+                }
+                long start = System.nanoTime();
+                for (Thread thread : threads) {
+                    thread.start();
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+                System.out.printf("batch<=%-5d delay=%5dus: %,9.0f records/s | ack us p50=%,8.0f p99=%,8.0f"
+                                + " | mean batch %6.1f | force %,6.0f us%n",
+                        setting[0], setting[1], all.length / seconds,
+                        all[all.length / 2] / 1e3, all[(int) (all.length * 0.99)] / 1e3,
+                        log.getMeanBatchSize(), log.getMeanForceMicros());
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+// Append-only log file with group commit. append() queues a record and
+// returns a future that completes once the record is on disk. A single
+// committer thread collects queued records into a batch, writes them and
+// calls force() once for the whole batch, so concurrent producers share
+// the cost of one fsync instead of paying one each.
+//
+// A batch is committed when it reaches maxBatchSize records or when its
+// oldest record has waited maxCommitDelay, whichever comes first. With a
+// delay of zero the committer still batches everything that queued up
+// while the previous force() was running.
+//
+// Records are [int length][int crc32c][payload]; replay() stops at the
+// first torn or corrupt record and cuts the file there.
+//
+// If a write or force() fails, the log is cut back to the end of the last
+// committed batch and stops: the failed batch and every later append
+// complete exceptionally with that error, so no record is acknowledged
+// after bytes whose durability is unknown.
+class WriteAheadLog implements AutoCloseable {
+    private static final int HEADER = 2 * Integer.BYTES;
+
+    private static final class Pending {
+        final byte[] data;
+        final long enqueuedAt = System.nanoTime();
+        final CompletableFuture<Long> durable = new CompletableFuture<>();
+
+        Pending(byte[] data) {
+            this.data = data;
+        }
+    }
+
+    private final FileChannel channel;
+    private final long maxCommitDelayNanos;
+    private final int maxBatchSize;
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread committer;
+    // Guards running so that no append can slip in after close() stopped the committer
+    private final Object lifecycle = new Object();
+    private volatile boolean running = true;
+    private volatile IOException failure;
+    // Committer thread only
+    private ByteBuffer batchBuffer = ByteBuffer.allocateDirect(64 * 1024);
+    private long nextSequence;
+    private long committedPosition;
+
+    private final LongAdder records = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder commitLatencyNanos = new LongAdder();
+    private final LongAccumulator maxCommitLatencyNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxBatch = new LongAccumulator(Math::max, 0);
+    private final LongAdder forceNanos = new LongAdder();
+
+    WriteAheadLog(Path file, Duration maxCommitDelay, int maxBatchSize) throws IOException {
+        if (maxBatchSize < 1 || maxCommitDelay.isNegative()) {
+            throw new IllegalArgumentException("need maxBatchSize >= 1 and a non-negative delay");
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.maxCommitDelayNanos = maxCommitDelay.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.nextSequence = countAndTruncate(null);
+        this.committedPosition = channel.position();
+        this.committer = new Thread(this::commitLoop, "wal-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    // Completes with the record's sequence number once it is durable
+    public CompletableFuture<Long> append(byte[] data) {
+        Pending pending = new Pending(data);
+        IOException failed = failure;
+        if (failed != null) {
+            pending.durable.completeExceptionally(failed);
+            return pending.durable;
+        }
+        synchronized (lifecycle) {
+            if (!running) {
+                pending.durable.completeExceptionally(new IllegalStateException("log is closed"));
+                return pending.durable;
+            }
+            queue.add(pending);
+        }
+        return pending.durable;
+    }
+
+    public long appendAndWait(byte[] data) throws IOException, InterruptedException {
+        try {
+            return append(data).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    private void commitLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = first.enqueuedAt + maxCommitDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        queue.drainTo(batch, maxBatchSize - batch.size());
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Only close() stops the committer
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        if (failure != null) {
+            failAll(batch, failure);
+            return;
+        }
+        try {
+            int bytes = 0;
+            for (Pending pending : batch) {
+                bytes += HEADER + pending.data.length;
+            }
+            if (batchBuffer.capacity() < bytes) {
+                batchBuffer = ByteBuffer.allocateDirect(Integer.highestOneBit(bytes) << 1);
+            }
+            batchBuffer.clear();
+            CRC32C crc = new CRC32C();
+            for (Pending pending : batch) {
+                crc.reset();
+                crc.update(pending.data);
+                batchBuffer.putInt(pending.data.length).putInt((int) crc.getValue()).put(pending.data);
+            }
+            batchBuffer.flip();
+            while (batchBuffer.hasRemaining()) {
+                channel.write(batchBuffer);
+            }
+            long forceStart = System.nanoTime();
+            channel.force(false);
+            long now = System.nanoTime();
+            forceNanos.add(now - forceStart);
+            committedPosition += bytes;
+
+            commits.increment();
+            records.add(batch.size());
+            maxBatch.accumulate(batch.size());
+            for (Pending pending : batch) {
+                long latency = now - pending.enqueuedAt;
+                commitLatencyNanos.add(latency);
+                maxCommitLatencyNanos.accumulate(latency);
+                pending.durable.complete(nextSequence++);
+            }
+        } catch (IOException e) {
+            poison(e);
+            failAll(batch, e);
+        }
+    }
+
+    // Cuts off whatever part of the failed batch reached the file, so a
+    // replay cannot bring back records whose producers were told they failed
+    private void poison(IOException e) {
+        failure = e;
+        try {
+            channel.truncate(committedPosition);
+            channel.force(false);
+        } catch (IOException truncateFailure) {
+            e.addSuppressed(truncateFailure);
+        }
+    }
+
+    private static void failAll(List<Pending> batch, Throwable cause) {
+        for (Pending pending : batch) {
+            pending.durable.completeExceptionally(cause);
+        }
+    }
+
+    // Reads every intact record from the start; must not run concurrently with appends
+    public long replay(Consumer<byte[]> handler) throws IOException {
+        return countAndTruncate(handler);
+    }
+
+    // Walks the records, cuts off a torn tail and leaves the channel positioned at the end
+    private synchronized long countAndTruncate(Consumer<byte[]> handler) throws IOException {
+        long position = 0;
+        long count = 0;
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        CRC32C crc = new CRC32C();
+        while (position + HEADER <= size) {
+            header.clear();
+            channel.read(header, position);
+            int length = header.getInt(0);
+            if (length < 0 || position + HEADER + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            channel.read(payload, position + HEADER);
+            crc.reset();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != header.getInt(Integer.BYTES)) {
+                break;
+            }
+            if (handler != null) {
+                handler.accept(payload.array());
+            }
+            position += HEADER + length;
+            count++;
+        }
+        if (position < size) {
+            channel.truncate(position);
+        }
+        channel.position(position);
+        return count;
+    }
+
+    // The error that stopped the log, or null while it is healthy
+    public IOException getFailure() {
+        return failure;
+    }
+
+    public long getRecords() {
+        return records.sum();
+    }
+
+    public long getCommits() {
+        return commits.sum();
+    }
+
+    public double getMeanBatchSize() {
+        long commits = getCommits();
+        return commits == 0 ? 0 : (double) getRecords() / commits;
+    }
+
+    public long getMaxBatchSize() {
+        return maxBatch.get();
+    }
+
+    // Time from append() to the record being durable
+    public double getMeanCommitLatencyMicros() {
+        long records = getRecords();
+        return records == 0 ? 0 : commitLatencyNanos.sum() / 1e3 / records;
+    }
+
+    public double getMaxCommitLatencyMicros() {
+        return maxCommitLatencyNanos.get() / 1e3;
+    }
+
+    public double getMeanForceMicros() {
+        long commits = getCommits();
+        return commits == 0 ? 0 : forceNanos.sum() / 1e3 / commits;
+    }
+
+    public String getStats() {
+        return String.format("records=%d commits=%d batch(mean=%.1f max=%d) commit latency us(mean=%.0f max=%.0f)"
+                        + " force us(mean=%.0f)",
+                getRecords(), getCommits(), getMeanBatchSize(), getMaxBatchSize(),
+                getMeanCommitLatencyMicros(), getMaxCommitLatencyMicros(), getMeanForceMicros());
+    }
+
+    // Commits everything already appended, then closes the file
+    @Override
+    public void close() throws IOException {
+        synchronized (lifecycle) {
+            running = false;
+        }
+        // Not interrupted: an interrupt during write() or force() would close the channel
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Pending late;
+        while ((late = queue.poll()) != null) {
+            late.durable.completeExceptionally(new IllegalStateException("log is closed"));
+        }
+        channel.close();
+    }
+}